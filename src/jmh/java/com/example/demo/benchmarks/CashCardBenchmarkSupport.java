@@ -0,0 +1,56 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.DemoApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+Start de applicatie voor een benchmark tegen de embedded H2 uit de test classpath (schema.sql en data.sql)
+en vult cash_card aan tot het gevraagde aantal rijen. De extra kaarten krijgen ids vanaf FIRST_SEEDED_ID,
+zodat ze niet botsen met de vier kaarten uit data.sql.
+ */
+final class CashCardBenchmarkSupport {
+
+    static final long FIRST_SEEDED_ID = 1_000L;
+    private static final String[] OWNERS = {"sarah1", "kumar2", "esuez5", "dave3"};
+
+    private CashCardBenchmarkSupport() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, int rows, String... properties) {
+        return start(new Class<?>[0], webApplicationType, rows, properties);
+    }
+
+    // extraSources zijn extra @Configuration classes voor de benchmark, bijvoorbeeld om database latency te simuleren
+    static ConfigurableApplicationContext start(Class<?>[] extraSources, WebApplicationType webApplicationType, int rows,
+                                                String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .sources(extraSources)
+                .web(webApplicationType)
+                .properties("server.port=0", "logging.level.root=WARN")
+                // als command line argumenten, zodat ze voorgaan op application.properties
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+        seed(context.getBean(JdbcTemplate.class), rows);
+        return context;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        List<Object[]> batch = new ArrayList<>(1_000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{FIRST_SEEDED_ID + i, (long) (i * 7919 % 100_000), OWNERS[i % OWNERS.length]});
+            if (batch.size() == 1_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO cash_card (id, amount, owner) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO cash_card (id, amount, owner) VALUES (?, ?, ?)", batch);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/*
+End-to-end door CashCardController met MockMvc: request binding, controller, repository (met cache) en JSON,
+zonder netwerk. create schrijft echt naar de database, de tabel groeit dus tijdens de meting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CashCardControllerBenchmark {
+
+    @Param({"1000"})
+    int rows;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() {
+        context = CashCardBenchmarkSupport.start(WebApplicationType.SERVLET, rows);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String findById() throws Exception {
+        return mockMvc.perform(get("/cashcards/99")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String findAll() throws Exception {
+        return mockMvc.perform(get("/cashcards")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String paged() throws Exception {
+        return mockMvc.perform(get("/cashcards/paged?page=3&size=20&sort=amount,desc")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String create() throws Exception {
+        return mockMvc.perform(post("/cashcards")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 12.50, \"owner\": \"sarah1\"}"))
+                .andReturn().getResponse().getHeader("Location");
+    }
+}
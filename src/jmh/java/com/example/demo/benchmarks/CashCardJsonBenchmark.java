@@ -0,0 +1,89 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.model.CashCard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+Jackson serialisatie van CashCard, los en als lijst, met dezelfde ObjectMapper instellingen als Spring MVC.
+format=smile gebruikt dezelfde instellingen met de SmileFactory, zoals SmileConfiguration. writeSingle en writeList
+rapporteren naast de tijd ook bytes, de grootte van het bericht, zodat JSON en Smile ook op bytes te vergelijken zijn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CashCardJsonBenchmark {
+
+    @Param({"100"})
+    int listSize;
+
+    @Param({"json", "smile"})
+    String format;
+
+    private CashCard cashCard;
+    private CashCard[] cashCards;
+    private byte[] cashCardJson;
+    private byte[] cashCardsJson;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private ObjectReader listReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = format.equals("smile")
+                ? Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+        reader = objectMapper.readerFor(CashCard.class);
+        listReader = objectMapper.readerFor(CashCard[].class);
+
+        cashCard = new CashCard(99L, 12345, "sarah1");
+        cashCards = new CashCard[listSize];
+        for (int i = 0; i < listSize; i++) {
+            cashCards[i] = new CashCard(100L + i, i * 125L, "sarah1");
+        }
+        cashCardJson = writer.writeValueAsBytes(cashCard);
+        cashCardsJson = writer.writeValueAsBytes(cashCards);
+    }
+
+    // één benchmark thread, dus de waarde aan het einde van de iteratie is de grootte van het laatste bericht
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MessageSize {
+        public long bytes;
+    }
+
+    @Benchmark
+    public byte[] writeSingle(MessageSize size) throws IOException {
+        byte[] message = writer.writeValueAsBytes(cashCard);
+        size.bytes = message.length;
+        return message;
+    }
+
+    @Benchmark
+    public CashCard readSingle() throws IOException {
+        return reader.readValue(cashCardJson);
+    }
+
+    @Benchmark
+    public byte[] writeList(MessageSize size) throws IOException {
+        byte[] message = writer.writeValueAsBytes(cashCards);
+        size.bytes = message.length;
+        return message;
+    }
+
+    @Benchmark
+    public CashCard[] readList() throws IOException {
+        return listReader.readValue(cashCardsJson);
+    }
+}
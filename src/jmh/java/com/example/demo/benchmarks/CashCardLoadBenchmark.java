@@ -0,0 +1,124 @@
+package com.example.demo.benchmarks;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.reactivestreams.Publisher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import reactor.core.publisher.Mono;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+Load test over HTTP: veel meer gelijktijdige clients (@Threads) dan er Tomcat threads zijn (server.tomcat.threads.max),
+tegen een database met gesimuleerde netwerk latency (benchmark.db-latency-ms per JDBC getConnection of R2DBC create).
+
+Met platform threads is de throughput begrensd op ongeveer tomcatThreads / latency, met virtualThreads=true of
+api=reactive (/reactive/cashcards, R2DBC) groeit hij mee met het aantal clients. Bij reactive wacht er tijdens de
+latency geen thread: die wordt met een timer gesimuleerd in plaats van met Thread.sleep.
+Alle varianten draaien met dezelfde heap (-Xmx512m); -prof gc laat het geheugengebruik zien.
+
+virtualThreads=true heeft Java 21 nodig:
+./mvnw -Pbenchmark -DskipTests test-compile exec:exec -Djmh.args="CashCardLoad -prof gc" met JAVA_HOME op een JDK 21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(200)
+public class CashCardLoadBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"blocking", "reactive"})
+    String api;
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    @Param({"20"})
+    int tomcatThreads;
+
+    @Param({"50"})
+    int dbLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() {
+        context = CashCardBenchmarkSupport.start(new Class<?>[]{DatabaseLatencyConfiguration.class}, WebApplicationType.SERVLET, ROWS,
+                "cashcard.threads.virtual=" + virtualThreads,
+                "spring.datasource.hikari.maximum-pool-size=200",
+                "spring.r2dbc.pool.max-size=200",
+                "server.tomcat.threads.max=" + tomcatThreads,
+                "spring.cache.type=none",
+                "benchmark.db-latency-ms=" + dbLatencyMillis);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + (api.equals("reactive") ? "/reactive/cashcards/" : "/cashcards/");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int findById() throws IOException, InterruptedException {
+        long id = CashCardBenchmarkSupport.FIRST_SEEDED_ID + ThreadLocalRandom.current().nextInt(ROWS);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + id)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // bewust zonder @Configuration, anders pikt de component scan van DemoApplication hem ook in andere benchmarks op
+    static class DatabaseLatencyConfiguration {
+
+        @Bean
+        static BeanPostProcessor databaseLatencyPostProcessor(@Value("${benchmark.db-latency-ms:0}") long latencyMillis) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource) {
+                        ProxyFactory proxyFactory = new ProxyFactory(bean);
+                        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                            if (invocation.getMethod().getName().equals("getConnection")) {
+                                Thread.sleep(latencyMillis);
+                            }
+                            return invocation.proceed();
+                        });
+                        return proxyFactory.getProxy();
+                    }
+                    if (bean instanceof ConnectionFactory) {
+                        ProxyFactory proxyFactory = new ProxyFactory(bean);
+                        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                            if (invocation.getMethod().getName().equals("create")) {
+                                Publisher<?> connection = (Publisher<?>) invocation.proceed();
+                                return Mono.delay(Duration.ofMillis(latencyMillis)).then(Mono.from(connection));
+                            }
+                            return invocation.proceed();
+                        });
+                        return proxyFactory.getProxy();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.services.CashCardReadService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+Thundering herd: veel threads vragen tegelijk dezelfde kaart of dezelfde pagina op via CashCardReadService, zonder
+cache en met gesimuleerde database latency (dbLatencyMillis per JDBC getConnection).
+
+Naast de throughput rapporteert JMH dbCalls: het aantal database aanroepen per seconde. Zonder samenvoegen
+(coalesce=false) is dat de throughput (bij paged keer twee: de pagina en de COUNT), met samenvoegen ongeveer één
+aanroep per query duur per sleutel, hoeveel threads er ook wachten.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(64)
+public class CashCardReadBenchmark {
+
+    // getConnection aanroepen per benchmark thread, bijgehouden door de DataSource proxy
+    private static final ThreadLocal<long[]> CONNECTIONS = ThreadLocal.withInitial(() -> new long[1]);
+    private static final PageRequest PAGE = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "amount"));
+
+    @Param({"false", "true"})
+    boolean coalesce;
+
+    @Param({"5"})
+    int dbLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private CashCardReadService cashCardReadService;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class DatabaseCalls {
+        public long dbCalls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            dbCalls = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        context = CashCardBenchmarkSupport.start(new Class<?>[]{CountingDatabaseConfiguration.class}, WebApplicationType.NONE, 10_000,
+                "cashcard.reads.coalesce=" + coalesce,
+                "spring.cache.type=none",
+                "spring.datasource.hikari.maximum-pool-size=64",
+                "benchmark.db-latency-ms=" + dbLatencyMillis);
+        cashCardReadService = context.getBean(CashCardReadService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<CashCard> findById(DatabaseCalls calls) {
+        long[] connections = CONNECTIONS.get();
+        long before = connections[0];
+        Optional<CashCard> cashCard = cashCardReadService.findById(CashCardBenchmarkSupport.FIRST_SEEDED_ID);
+        calls.dbCalls += connections[0] - before;
+        return cashCard;
+    }
+
+    @Benchmark
+    public Page<CashCard> paged(DatabaseCalls calls) {
+        long[] connections = CONNECTIONS.get();
+        long before = connections[0];
+        Page<CashCard> page = cashCardReadService.findAll(PAGE);
+        calls.dbCalls += connections[0] - before;
+        return page;
+    }
+
+    // bewust zonder @Configuration, anders pikt de component scan van DemoApplication hem ook in andere benchmarks op
+    static class CountingDatabaseConfiguration {
+
+        @Bean
+        static BeanPostProcessor countingDatabasePostProcessor(@Value("${benchmark.db-latency-ms:0}") long latencyMillis) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    ProxyFactory proxyFactory = new ProxyFactory(bean);
+                    proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                        if (invocation.getMethod().getName().equals("getConnection")) {
+                            CONNECTIONS.get()[0]++;
+                            Thread.sleep(latencyMillis);
+                        }
+                        return invocation.proceed();
+                    });
+                    return proxyFactory.getProxy();
+                }
+            };
+        }
+    }
+}
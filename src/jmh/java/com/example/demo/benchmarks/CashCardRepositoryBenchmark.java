@@ -0,0 +1,82 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardCursor;
+import com.example.demo.repositories.CashCardRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+CashCardRepository tegen een embedded H2 met rows kaarten. De caches staan uit (spring.cache.type=none),
+zodat findById echt de database raakt. pagedDeep en keysetDeep lezen dezelfde diepe pagina, met OFFSET en COUNT
+respectievelijk via de (amount, id) index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CashCardRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "100000"})
+    int rows;
+
+    private ConfigurableApplicationContext context;
+    private CashCardRepository cashCardRepository;
+    private CashCardCursor deepCursor;
+
+    @Setup
+    public void setUp() {
+        context = CashCardBenchmarkSupport.start(WebApplicationType.NONE, rows, "spring.cache.type=none");
+        cashCardRepository = context.getBean(CashCardRepository.class);
+
+        CashCard lastBeforeDeepPage = cashCardRepository.findAll(deepPage(-1)).getContent().get(PAGE_SIZE - 1);
+        deepCursor = CashCardCursor.start(Sort.by("amount")).after(lastBeforeDeepPage);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<CashCard> findById() {
+        return cashCardRepository.findById(CashCardBenchmarkSupport.FIRST_SEEDED_ID + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public Iterable<CashCard> findAll() {
+        return cashCardRepository.findAll();
+    }
+
+    @Benchmark
+    public List<CashCard> pagedFirst() {
+        return cashCardRepository.findAll(PageRequest.of(0, PAGE_SIZE, Sort.by("amount", "id"))).getContent();
+    }
+
+    @Benchmark
+    public List<CashCard> pagedDeep() {
+        return cashCardRepository.findAll(deepPage(0)).getContent();
+    }
+
+    @Benchmark
+    public List<CashCard> keysetDeep() {
+        return cashCardRepository.findPage(deepCursor, PAGE_SIZE);
+    }
+
+    // de pagina op ongeveer 90% van de tabel, plus offset pagina's
+    private PageRequest deepPage(int offset) {
+        return PageRequest.of(rows * 9 / 10 / PAGE_SIZE + offset, PAGE_SIZE, Sort.by("amount", "id"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.model.CashCardTransaction;
+import com.example.demo.services.CashCardTransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+Boekingen van 1 cent door veel threads tegelijk op één en dezelfde kaart (hot card), via CashCardTransactionService.
+maxBatch=1 is zonder samenvoegen: elke boeking een eigen transactie en wachten op de row lock.
+Met maxBatch=256 boekt de thread met de lock alles wat klaarstaat in één transactie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(16)
+public class CashCardTransactionBenchmark {
+
+    @Param({"1", "256"})
+    int maxBatch;
+
+    private ConfigurableApplicationContext context;
+    private CashCardTransactionService cashCardTransactionService;
+
+    @Setup
+    public void setUp() {
+        context = CashCardBenchmarkSupport.start(WebApplicationType.NONE, 0,
+                "cashcard.transactions.max-batch=" + maxBatch,
+                "spring.datasource.hikari.maximum-pool-size=16");
+        cashCardTransactionService = context.getBean(CashCardTransactionService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<CashCardTransaction> hotCard() {
+        return cashCardTransactionService.apply(99L, 1, null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/*
+GET /greeting met MockMvc. greeting rendert (of haalt uit de cache) de volledige pagina; revalidate stuurt de ETag
+van een eerder antwoord mee in If-None-Match, zoals een browser of health check die de pagina al heeft.
+cache=none zet de greetings cache uit, dan wordt de template bij elke request gerenderd.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GreetingBenchmark {
+
+    @Param({"none", "caffeine"})
+    String cache;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String eTag;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = CashCardBenchmarkSupport.start(WebApplicationType.SERVLET, 0, "spring.cache.type=" + cache);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        eTag = mockMvc.perform(get("/greeting").param("name", "sarah1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String greeting() throws Exception {
+        return mockMvc.perform(get("/greeting").param("name", "sarah1")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public int revalidate() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/greeting").param("name", "sarah1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag == null ? "\"none\"" : eTag)).andReturn().getResponse();
+        return response.getStatus() + response.getContentAsByteArray().length;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Tijd van het starten van de JVM tot de eerste 200 op GET /cashcards/99, met en zonder de onderdelen van het
+faststart profiel. Elke meting start DemoApplication in een eigen proces, met data.sql uit de test resources.
+
+aot   -Dspring.aot.enabled=true, de code uit process-aot
+cds   het AppCDS archief target/faststart/app.jsa, met het classpath van de training run vooraan
+lazy  -Dspring.main.lazy-initialization=true, zie StartupConfiguration
+
+aot en cds hebben een build met het faststart profiel nodig:
+
+./mvnw -Pbenchmark,faststart -DskipTests package exec:exec -Djmh.args="StartupBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+    private static final Path FASTSTART = Path.of("target", "faststart");
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    @Param({"false", "true"})
+    boolean aot;
+
+    @Param({"false", "true"})
+    boolean cds;
+
+    @Param({"false", "true"})
+    boolean lazy;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+    private List<String> command;
+    private URI uri;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        String classpath = System.getProperty("java.class.path");
+        if (cds) {
+            Path archive = FASTSTART.resolve("app.jsa");
+            Path jar;
+            try (var files = Files.list(FASTSTART)) {
+                jar = files.filter(file -> file.getFileName().toString().endsWith("-app.jar")).findFirst().orElseThrow();
+            } catch (IOException e) {
+                throw new IllegalStateException("cds=true needs a build with -Pfaststart", e);
+            }
+            if (!Files.exists(archive)) {
+                throw new IllegalStateException("cds=true needs " + archive + ", build with -Pfaststart");
+            }
+            command.add("-XX:SharedArchiveFile=" + archive);
+            classpath = jar + File.pathSeparator + FASTSTART.resolve("lib") + File.separator + "*" + File.pathSeparator + classpath;
+        }
+        command.add("-Dspring.aot.enabled=" + aot);
+        command.add("-Dspring.main.lazy-initialization=" + lazy);
+        command.addAll(List.of("-classpath", classpath, "com.example.demo.DemoApplication"));
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        command.addAll(List.of("--server.port=" + port, "--logging.level.root=WARN"));
+        uri = URI.create("http://localhost:" + port + "/cashcards/99");
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws Exception {
+        process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("target", "startup-benchmark.log").toFile())
+                .start();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("DemoApplication stopped with exit code " + process.exitValue()
+                        + ", see target/startup-benchmark.log");
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return response.statusCode();
+                }
+            } catch (IOException e) {
+                // nog niet aan het luisteren
+            }
+            Thread.sleep(2);
+        }
+        throw new IllegalStateException("No 200 from " + uri + " within " + TIMEOUT);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
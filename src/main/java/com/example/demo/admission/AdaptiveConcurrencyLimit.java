@@ -0,0 +1,153 @@
+package com.example.demo.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Globale limiet op het aantal gelijktijdige requests, die zich aanpast aan de gemeten latency (naar het Gradient2
+algoritme van Netflix concurrency-limits).
+
+Na elk request wordt de latency vergeleken met een langzaam voortschrijdend gemiddelde (longRtt). Loopt de latency
+op ten opzichte van dat gemiddelde, dan staan er requests in een wachtrij ergens achter ons (database pool, CPU) en
+gaat de limiet omlaag; blijft hij gelijk, dan groeit de limiet met ongeveer de wortel van de limiet. Zo blijft er net
+genoeg werk in het systeem om het bezig te houden, zonder dat de latency voor iedereen oploopt.
+
+Boven de limiet wachten requests in een begrensde wachtrij (queueSize, maximaal maxWait). Is de wachtrij vol of
+duurt het te lang, dan geeft acquire QUEUE_FULL of QUEUE_TIMEOUT en wordt het request direct geweigerd in plaats van
+een thread vast te houden.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    enum Admission {
+        ADMITTED, QUEUE_FULL, QUEUE_TIMEOUT
+    }
+
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final long maxWaitNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private double longRtt;
+    private int inFlight;
+    private int queued;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int queueSize, long maxWait, TimeUnit unit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueSize = queueSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    /*
+    Bij ADMITTED mag het request beginnen en moet de aanroeper precies één keer release aanroepen.
+     */
+    Admission acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return Admission.ADMITTED;
+            }
+            if (queued >= queueSize) {
+                return Admission.QUEUE_FULL;
+            }
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        return Admission.QUEUE_TIMEOUT;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                // de limiet kan met meer dan één gegroeid zijn
+                if (inFlight < (int) limit) {
+                    released.signal();
+                }
+                return Admission.ADMITTED;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long rttNanos) {
+        lock.lock();
+        try {
+            int current = inFlight;
+            inFlight--;
+            update(rttNanos, current);
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+    Als release, maar zonder de latency mee te tellen: voor requests waarvan de duur niets zegt over de belasting,
+    zoals een stream die zo lang duurt als de client erover doet.
+     */
+    void releaseUnmeasured() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(long rttNanos, int inFlightAtRelease) {
+        double rtt = Math.max(1, rttNanos);
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        // na een periode van overbelasting niet te lang de hoge latency als normaal blijven zien
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // zolang de limiet niet vol zit zegt de latency niets over de limiet
+        if (inFlightAtRelease < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo.admission;
+
+import com.example.demo.metrics.CashCardMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+Opt-in: cashcard.admission.enabled=true
+
+Admission control voor /cashcards, in twee stappen, zodat één owner de rest niet kan verdringen en overbelasting
+snel geweigerd wordt in plaats van Tomcat threads te laten ophopen:
+
+1. Per owner een token bucket (cashcard.admission.owner-rate per seconde, tot cashcard.admission.owner-burst).
+   Een request zonder genoeg tokens krijgt direct 429 met Retry-After. Elke lijst (GET /cashcards, ook als stream, en
+   GET /cashcards/paged, met offset of cursor) kost cashcard.admission.list-cost tokens, de rest één. Een list-cost
+   boven owner-burst zou nooit binnenkomen, dus dan start de applicatie niet.
+   De owner is de ingelogde gebruiker, anders het IP adres van de client. Alleen als dat adres in
+   cashcard.admission.trusted-proxies staat (een gateway die de owner zelf vaststelt) telt de X-Owner header; anders
+   zou een client met een andere header telkens een nieuwe, volle bucket krijgen.
+2. Een globale, adaptieve limiet op het aantal gelijktijdige requests (zie AdaptiveConcurrencyLimit) met een
+   begrensde wachtrij. Wie er niet binnen cashcard.admission.max-wait in komt, of een volle wachtrij treft, krijgt 503.
+   Streams (/cashcards?stream=...) houden een plek bezet, maar hun duur telt niet mee als latency meting: die hangt
+   af van de grootte van de export en de snelheid van de client, en zou de limiet onterecht omlaag duwen.
+
+De buckets staan in een begrensde Caffeine map en verdwijnen als een owner een tijd niets doet.
+Metrics: cashcard.admission.*, zie CashCardMetrics.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "cashcard.admission.enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    static final String OWNER_HEADER = "X-Owner";
+
+    private final CashCardMetrics cashCardMetrics;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Cache<String, TokenBucket> buckets;
+    private final double ownerRate;
+    private final double ownerBurst;
+    private final double listCost;
+    private final Set<String> trustedProxies;
+
+    public AdmissionControlFilter(CashCardMetrics cashCardMetrics,
+                                  @Value("${cashcard.admission.owner-rate:50}") double ownerRate,
+                                  @Value("${cashcard.admission.owner-burst:100}") double ownerBurst,
+                                  @Value("${cashcard.admission.list-cost:10}") double listCost,
+                                  @Value("${cashcard.admission.initial-limit:20}") int initialLimit,
+                                  @Value("${cashcard.admission.min-limit:4}") int minLimit,
+                                  @Value("${cashcard.admission.max-limit:200}") int maxLimit,
+                                  @Value("${cashcard.admission.queue-size:50}") int queueSize,
+                                  @Value("${cashcard.admission.max-wait:PT0.05S}") Duration maxWait,
+                                  @Value("${cashcard.admission.trusted-proxies:}") Set<String> trustedProxies) {
+        if (listCost > ownerBurst) {
+            throw new IllegalArgumentException("cashcard.admission.list-cost (" + listCost
+                    + ") must not exceed cashcard.admission.owner-burst (" + ownerBurst + ")");
+        }
+        this.cashCardMetrics = cashCardMetrics;
+        this.trustedProxies = trustedProxies;
+        this.ownerRate = ownerRate;
+        this.ownerBurst = ownerBurst;
+        this.listCost = listCost;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, queueSize,
+                maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                // een volle bucket is na burst / rate seconden weer in de beginstand, dan hoeft hij niet bewaard te blijven
+                .expireAfterAccess(Duration.ofSeconds((long) Math.ceil(ownerBurst / ownerRate) + 1))
+                .build();
+        cashCardMetrics.admissionGauge("limit", "Current adaptive concurrency limit for /cashcards",
+                concurrencyLimit, AdaptiveConcurrencyLimit::limit);
+        cashCardMetrics.admissionGauge("in.flight", "Admitted /cashcards requests in progress",
+                concurrencyLimit, AdaptiveConcurrencyLimit::inFlight);
+        cashCardMetrics.admissionGauge("queued", "/cashcards requests waiting for a concurrency slot",
+                concurrencyLimit, AdaptiveConcurrencyLimit::queued);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith("/cashcards");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.nanoTime();
+        long retryAfterNanos = buckets.get(owner(request, trustedProxies), owner -> new TokenBucket(ownerRate, ownerBurst, now))
+                .tryAcquire(isList(request) ? listCost : 1, now);
+        if (retryAfterNanos > 0) {
+            cashCardMetrics.admissionRejected("rate_limited");
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos) + 1)));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+
+        AdaptiveConcurrencyLimit.Admission admission;
+        try {
+            admission = concurrencyLimit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admission = AdaptiveConcurrencyLimit.Admission.QUEUE_TIMEOUT;
+        }
+        long started = System.nanoTime();
+        if (admission != AdaptiveConcurrencyLimit.Admission.ADMITTED) {
+            cashCardMetrics.admissionRejected(admission.name().toLowerCase(Locale.ROOT));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        cashCardMetrics.admissionQueueWait(started - now);
+
+        boolean measured = request.getParameter("stream") == null;
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                if (measured) {
+                    concurrencyLimit.release(System.nanoTime() - started);
+                } else {
+                    concurrencyLimit.releaseUnmeasured();
+                }
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    static String owner(HttpServletRequest request, Set<String> trustedProxies) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return principal.getName();
+        }
+        String remoteAddr = request.getRemoteAddr();
+        String owner = trustedProxies.contains(remoteAddr) ? request.getHeader(OWNER_HEADER) : null;
+        return owner != null && !owner.isBlank() ? owner : remoteAddr;
+    }
+
+    static boolean isList(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return HttpMethod.GET.matches(request.getMethod()) && (path.equals("/cashcards") || path.equals("/cashcards/paged"));
+    }
+}
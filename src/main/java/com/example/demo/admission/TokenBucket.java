@@ -0,0 +1,31 @@
+package com.example.demo.admission;
+
+/*
+Token bucket van één owner: vult met rate tokens per seconde bij tot maximaal burst.
+Een request kost cost tokens; is er niet genoeg dan wordt het geweigerd en verandert er niets.
+ */
+final class TokenBucket {
+
+    private final double rate;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double rate, double burst, long now) {
+        this.rate = rate;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    // now in nanos (System.nanoTime); geeft 0 terug als het request door mag, anders de nanos tot er genoeg tokens zijn
+    synchronized long tryAcquire(double cost, long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAt) * rate / 1e9);
+        refilledAt = now;
+        if (tokens >= cost) {
+            tokens -= cost;
+            return 0;
+        }
+        return (long) Math.ceil((Math.min(cost, burst) - tokens) / rate * 1e9);
+    }
+}
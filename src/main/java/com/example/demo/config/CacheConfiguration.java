@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+De Caffeine caches (spring.cache.*) zijn transaction-aware: een evict of put binnen een transactie, zoals de
+@CacheEvict op CashCardRepository.save binnen CashCardService, gebeurt pas na de commit. Anders kan een GET tussen de
+evict en de commit de oude rij opnieuw laden en tot de TTL in de cache zetten. Buiten een transactie is een evict
+direct, net als daarvoor.
+
+CaffeineCacheManager kent zelf geen setTransactionAware, dus de CacheManager van Spring Boot wordt in een
+TransactionAwareCacheManagerProxy verpakt. De cache metrics van Boot kijken door de decorator heen.
+
+Let op: een evict vanuit afterCommit wordt door de decorator opnieuw naar afterCommit geschoven en dan nooit meer
+uitgevoerd. Evict daarom gewoon binnen de transactie.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CacheConfiguration {
+
+    @Bean
+    static BeanPostProcessor transactionAwareCacheManager() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof CaffeineCacheManager cacheManager ? new TransactionAwareCacheManagerProxy(cacheManager) : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.config;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.repositories.CashCardRepository;
+import com.example.demo.repositories.ReactiveCashCardRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.jdbc.core.convert.JdbcCustomConversions;
+import org.springframework.data.jdbc.core.mapping.JdbcMappingContext;
+import org.springframework.data.jdbc.repository.config.AbstractJdbcConfiguration;
+import org.springframework.data.jdbc.repository.config.EnableJdbcRepositories;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.data.relational.RelationalManagedTypes;
+import org.springframework.data.relational.core.mapping.NamingStrategy;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/*
+JDBC (CashCardRepository en de rest) en R2DBC (ReactiveCashCardRepository) naast elkaar, op dezelfde database.
+
+Spring Boot maakt geen DataSource meer zodra er een R2DBC ConnectionFactory is, dus die wordt hier zelf gemaakt,
+op dezelfde manier als Boot dat doet (spring.datasource.* en spring.datasource.hikari.*).
+
+Zonder spring.datasource.url en spring.r2dbc.url zou Boot bovendien twee losse embedded H2 databases maken.
+De ConnectionFactory opent daarom dezelfde in-memory database als de DataSource, met dezelfde (per context unieke)
+naam. Zo zien beide kanten de data uit data.sql, en krijgt elke test context nog steeds een eigen database.
+Anders dan Boot's embedded URL staat DB_CLOSE_DELAY niet op -1: de database bestaat zolang een van de twee pools een
+connectie open heeft, en verdwijnt dus als de context sluit (Hikari en de R2DBC pool worden dan allebei gesloten).
+Met een echte database worden gewoon spring.datasource.url en spring.r2dbc.url gezet en maakt Boot de ConnectionFactory.
+
+Beide repository soorten staan in hetzelfde package. Spring Data JDBC zou ook ReactiveCashCardRepository proberen te
+maken, vandaar de exclude. Daarnaast zijn er van de mapping context en de transaction manager nu twee beans, een
+JDBC en een R2DBC variant. De JDBC repository factory en @Transactional zoeken er één op type, dus de JDBC varianten
+worden hier zelf gedefinieerd en zijn @Primary. Boot's eigen JDBC configuratie en transaction manager wijken daarvoor.
+
+Alleen met cashcard.storage=jdbc (de default). Met memory is er geen database, zie InMemoryStorageConfiguration.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(DataSourceProperties.class)
+@EnableJdbcRepositories(basePackageClasses = CashCardRepository.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveCashCardRepository.class))
+@EnableR2dbcRepositories(basePackageClasses = ReactiveCashCardRepository.class)
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class DatabaseConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        DataSourceBuilder<HikariDataSource> builder = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class);
+        if (!StringUtils.hasText(dataSourceProperties.getUrl())) {
+            builder.url("jdbc:h2:mem:" + dataSourceProperties.determineDatabaseName() + ";DB_CLOSE_ON_EXIT=FALSE");
+        }
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnExpression("'${spring.datasource.url:}'.isEmpty() and '${spring.r2dbc.url:}'.isEmpty()")
+    ConnectionPool embeddedConnectionFactory(DataSourceProperties dataSourceProperties,
+                                             @Value("${spring.r2dbc.pool.max-size:10}") int maxSize) {
+        return (ConnectionPool) ConnectionFactoryBuilder.withUrl("r2dbc:pool:h2:mem:///" + dataSourceProperties.determineDatabaseName()
+                        + "?options=DB_CLOSE_ON_EXIT=FALSE&maxSize=" + maxSize)
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build();
+    }
+
+    @Bean
+    @Primary
+    JdbcTransactionManager transactionManager(DataSource dataSource,
+                                              ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        JdbcTransactionManager transactionManager = new JdbcTransactionManager(dataSource);
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    /*
+    Vervangt Boot's SpringBootJdbcConfiguration, alleen om de JDBC mapping context primary te maken.
+    Component scanning vindt deze geneste configuratie ook los van DatabaseConfiguration, dus hij heeft zijn eigen
+    conditie nodig.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+    static class JdbcConfiguration extends AbstractJdbcConfiguration {
+
+        @Bean
+        @Primary
+        @Override
+        public JdbcMappingContext jdbcMappingContext(Optional<NamingStrategy> namingStrategy,
+                                                     JdbcCustomConversions customConversions,
+                                                     RelationalManagedTypes jdbcManagedTypes) {
+            return super.jdbcMappingContext(namingStrategy, customConversions, jdbcManagedTypes);
+        }
+
+        @Override
+        protected Collection<String> getMappingBasePackages() {
+            return List.of(CashCard.class.getPackageName());
+        }
+    }
+}
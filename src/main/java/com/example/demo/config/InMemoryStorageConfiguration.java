@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+De transaction manager voor cashcard.storage=memory, waar er geen DataSource is (zie StorageEnvironmentPostProcessor).
+
+@Transactional en TransactionTemplate blijven zo werken. Er valt niets te committen: InMemoryCashCardRepository
+schrijft direct in de store en registreert per transactie een undo log en zijn update locks als
+TransactionSynchronization. Deze manager zorgt alleen dat die synchronisaties er zijn en bij commit of rollback
+draaien, met dezelfde regels voor propagation en rollback-only als JdbcTransactionManager.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "memory")
+public class InMemoryStorageConfiguration {
+
+    @Bean
+    InMemoryTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        InMemoryTransactionManager transactionManager = new InMemoryTransactionManager();
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+
+    /*
+    De lopende transactie is een resource op de thread met de manager als sleutel, zoals de ConnectionHolder bij JDBC.
+     */
+    static class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            InMemoryTransaction transaction = (InMemoryTransaction) TransactionSynchronizationManager.getResource(this);
+            return transaction != null ? transaction : new InMemoryTransaction();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return TransactionSynchronizationManager.getResource(this) == transaction;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            TransactionSynchronizationManager.bindResource(this, transaction);
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            return TransactionSynchronizationManager.unbindResource(this);
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendedResources) {
+            TransactionSynchronizationManager.bindResource(this, suspendedResources);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+            ((InMemoryTransaction) status.getTransaction()).rollbackOnly = true;
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(this);
+        }
+    }
+
+    static final class InMemoryTransaction implements SmartTransactionObject {
+
+        boolean rollbackOnly;
+
+        @Override
+        public boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/*
+Smile (application/x-jackson-smile) als binair alternatief voor JSON, voor interne service-to-service calls.
+
+Smile is binaire JSON: hetzelfde datamodel, dus CashCard heeft geen extra annotaties of schema nodig. Veldnamen die
+al eerder in het bericht stonden worden als back-reference van één byte geschreven, dus in een lijst staan "id",
+"amount" en "owner" maar één keer uitgeschreven. Getallen zijn binair in plaats van tekst.
+
+Spring MVC zou zelf ook een Smile converter registreren, maar dan met een kale ObjectMapper. Deze bean gebruikt de
+ObjectMapper instellingen van Spring Boot (spring.jackson.*), zodat JSON en Smile dezelfde velden opleveren.
+JSON blijft de standaard: Smile wordt alleen gebruikt als de client er met Accept of Content-Type om vraagt.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SmileConfiguration {
+
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.config;
+
+import com.example.demo.controllers.CashCardController;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerAdapter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/*
+Instellingen voor snel opstarten, zie het faststart profiel in pom.xml.
+
+Met spring.main.lazy-initialization=true worden beans pas gemaakt als ze nodig zijn. Wat voor GET /cashcards/{id}
+nodig is blijft eager (CashCardController met zijn dependencies, de DataSource en de MVC infrastructuur), zodat het
+eerste request niet alsnog op de rest van de context wacht. Beans met @Scheduled blijven ook eager: een lazy bean
+wordt nooit aangemaakt, en dan draait zijn job ook niet.
+
+Met cashcard.startup.exit-on-ready=true stopt de applicatie zodra hij klaar is met opstarten. Dat is de training
+run voor het AppCDS archief: -XX:ArchiveClassesAtExit schrijft bij het afsluiten alle geladen classes weg.
+Beide worden bij het starten gelezen, dus ze werken ook met AOT (spring.aot.enabled=true), waar @Conditional
+annotaties al tijdens de build zijn uitgerekend.
+ */
+@Configuration(proxyBeanMethods = false)
+public class StartupConfiguration {
+
+    private static final List<Class<?>> EAGER_TYPES = List.of(CashCardController.class, DataSource.class,
+            DispatcherServlet.class, HandlerMapping.class, HandlerAdapter.class);
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerCashCardBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (EAGER_TYPES.stream().anyMatch(type -> type.isAssignableFrom(beanType)) || hasScheduledMethods(beanType));
+    }
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> exitOnReady(@Value("${cashcard.startup.exit-on-ready:false}") boolean exitOnReady) {
+        return event -> {
+            if (exitOnReady) {
+                System.exit(SpringApplication.exit(event.getApplicationContext()));
+            }
+        };
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Met cashcard.storage=memory is er geen database: deze EnvironmentPostProcessor (geregistreerd in
+META-INF/spring.factories) zet Boot's JDBC, R2DBC en SQL init auto-configuratie uit. Zonder dat zou Boot een
+DataSource maken (een embedded H2 als die op het classpath staat, anders faalt het starten op de ontbrekende url),
+schema.sql en data.sql draaien en ReactiveCashCardRepository en de Spring Data JDBC CashCardRepository aanmaken.
+Wat verder een database nodig heeft is @ConditionalOnProperty(cashcard.storage=jdbc), zie DatabaseConfiguration.
+
+spring.autoconfigure.exclude wordt alleen uit de property source met de hoogste prioriteit gelezen, dus de excludes
+die al ingesteld waren worden overgenomen.
+
+Write-behind schrijft direct in cash_card en heeft al een eigen conditie (cashcard.write-behind.enabled). In
+combinatie met cashcard.storage=memory stopt het starten hier met een foutmelding, in plaats van dat de service
+stil wegvalt.
+ */
+public class StorageEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final List<String> DATABASE_AUTO_CONFIGURATIONS = List.of(
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.jdbc.JdbcRepositoriesAutoConfiguration",
+            "org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration",
+            "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration",
+            "org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!"memory".equals(environment.getProperty("cashcard.storage"))) {
+            return;
+        }
+        if (environment.getProperty("cashcard.write-behind.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("cashcard.write-behind.enabled=true needs cashcard.storage=jdbc");
+        }
+        Set<String> excludes = new LinkedHashSet<>(StringUtils.commaDelimitedListToSet(
+                environment.getProperty("spring.autoconfigure.exclude", "")));
+        excludes.addAll(DATABASE_AUTO_CONFIGURATIONS);
+        environment.getPropertySources().addFirst(new MapPropertySource("cashcardStorage",
+                Map.of("spring.autoconfigure.exclude", String.join(",", excludes))));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Opt-in: cashcard.threads.virtual=true
+
+Elke Tomcat request en alle async werk (StreamingResponseBody, @Async) draait dan op een eigen virtual thread in plaats
+van op de vaste pool van server.tomcat.threads.max platform threads. Een handler die op JDBC wacht houdt zo geen
+platform thread meer bezet, en het aantal gelijktijdige requests wordt niet meer door die pool begrensd.
+
+Het project compileert voor Java 17, daarom wordt Executors.newVirtualThreadPerTaskExecutor() via reflectie opgezocht.
+Bestaat die methode niet (Java 17 tot en met 20), dan wordt deze configuratie overgeslagen met een waarschuwing in de
+log, en draait alles zoals zonder de property op de gewone platform thread pools.
+
+Het aantal gelijktijdige database calls wordt dan niet meer door de Tomcat pool begrensd maar door de HikariCP pool
+(spring.datasource.hikari.maximum-pool-size). Hikari laat wachtende threads parkeren via java.util.concurrent in plaats
+van synchronized, dus een virtual thread die op een connectie wacht geeft zijn carrier thread vrij.
+Pinning in de rest van het datapad is te controleren met -Djdk.tracePinnedThreads=short.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "cashcard.threads.virtual", havingValue = "true")
+@Conditional(VirtualThreadConfiguration.OnVirtualThreads.class)
+public class VirtualThreadConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+    static final String FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService virtualThreadExecutor() {
+        return newExecutor(FACTORY_METHOD).orElseThrow();
+    }
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    static Optional<ExecutorService> newExecutor(String factoryMethod) {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod(factoryMethod).invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    static boolean available(String factoryMethod) {
+        try {
+            Executors.class.getMethod(factoryMethod);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    static class OnVirtualThreads extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            if (available(FACTORY_METHOD)) {
+                return ConditionOutcome.match("Executors." + FACTORY_METHOD + " is available");
+            }
+            if (context.getEnvironment().getProperty("cashcard.threads.virtual", Boolean.class, false)) {
+                log.warn("cashcard.threads.virtual=true needs Java 21 or newer, running on {}: using platform threads",
+                        System.getProperty("java.version"));
+            }
+            return ConditionOutcome.noMatch("Executors." + FACTORY_METHOD + " is not available on Java "
+                    + System.getProperty("java.version"));
+        }
+    }
+}
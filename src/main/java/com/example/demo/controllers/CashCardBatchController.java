@@ -0,0 +1,118 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardBatchResult;
+import com.example.demo.repositories.CashCardBatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/*
+Bulk endpoints voor de nachtelijke imports:
+
+POST   /cashcards/batch   nieuwe cash cards aanmaken
+PUT    /cashcards/batch   bedragen van bestaande cash cards bijwerken (id, amount en owner verplicht)
+DELETE /cashcards/batch   cash cards verwijderen, body is een lijst met ids
+
+De body mag een JSON array zijn (application/json), één item per regel (application/x-ndjson), of een Smile array
+of losse Smile waarden achter elkaar (application/x-jackson-smile).
+De body wordt niet in zijn geheel ingelezen maar item voor item, en per chunk naar CashCardBatchRepository gestuurd.
+Het antwoord bevat per item het id en de status, in dezelfde volgorde als de request.
+
+Een kaart wordt eerst als tree gelezen en dan omgezet. Een item dat niet om te zetten is (geen of een ongeldig amount)
+krijgt zo alleen zelf 400, en de parser staat gewoon aan het begin van het volgende item.
+ */
+@RestController
+@RequestMapping("/cashcards/batch")
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardBatchController {
+
+    private static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private CashCardBatchRepository cashCardBatchRepository;
+    private ObjectReader cashCardReader;
+    private ObjectReader treeReader;
+    private ObjectReader idReader;
+    private ObjectReader smileTreeReader;
+    private ObjectReader smileIdReader;
+
+    public CashCardBatchController(CashCardBatchRepository cashCardBatchRepository, ObjectMapper objectMapper,
+                                   MappingJackson2SmileHttpMessageConverter smileConverter) {
+        this.cashCardBatchRepository = cashCardBatchRepository;
+        this.cashCardReader = objectMapper.readerFor(CashCard.class);
+        this.treeReader = objectMapper.readerFor(JsonNode.class);
+        this.idReader = objectMapper.readerFor(Long.class);
+        this.smileTreeReader = smileConverter.getObjectMapper().readerFor(JsonNode.class);
+        this.smileIdReader = smileConverter.getObjectMapper().readerFor(Long.class);
+    }
+
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson", APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<CashCardBatchResult>> createCashCards(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                     InputStream body) throws IOException {
+        return ResponseEntity.ok(inChunks(reader(contentType, treeReader, smileTreeReader).readValues(body),
+                this::toCashCard, cashCardBatchRepository::insertAll));
+    }
+
+    @PutMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson", APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<CashCardBatchResult>> putCashCards(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                  InputStream body) throws IOException {
+        return ResponseEntity.ok(inChunks(reader(contentType, treeReader, smileTreeReader).readValues(body),
+                this::toCashCard, cashCardBatchRepository::updateAll));
+    }
+
+    @DeleteMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson", APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<CashCardBatchResult>> deleteCashCards(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                     InputStream body) throws IOException {
+        return ResponseEntity.ok(inChunks(reader(contentType, idReader, smileIdReader).<Long>readValues(body),
+                Function.identity(), cashCardBatchRepository::deleteAll));
+    }
+
+    private static ObjectReader reader(MediaType contentType, ObjectReader jsonReader, ObjectReader smileReader) {
+        return contentType.isCompatibleWith(APPLICATION_SMILE) ? smileReader : jsonReader;
+    }
+
+    // null als de kaart niet gelezen kan worden; CashCardBatchRepository geeft dat item 400
+    private CashCard toCashCard(JsonNode item) {
+        try {
+            return cashCardReader.treeToValue(item, CashCard.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private <I, T> List<CashCardBatchResult> inChunks(MappingIterator<I> items, Function<I, T> converter,
+                                                      BiFunction<List<T>, Integer, List<CashCardBatchResult>> writer) throws IOException {
+        try (items) {
+            int chunkSize = cashCardBatchRepository.getChunkSize();
+            List<CashCardBatchResult> results = new ArrayList<>();
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (items.hasNextValue()) {
+                chunk.add(converter.apply(items.nextValue()));
+                if (chunk.size() == chunkSize) {
+                    results.addAll(writer.apply(chunk, results.size()));
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                results.addAll(writer.apply(chunk, results.size()));
+            }
+            return results;
+        }
+    }
+}
@@ -1,42 +1,108 @@
 package com.example.demo.controllers;
 
+import com.example.demo.metrics.CashCardMetrics;
 import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardCursor;
+import com.example.demo.model.CashCardPage;
+import com.example.demo.model.CashCardSummary;
+import com.example.demo.model.CashCardVersion;
 import com.example.demo.repositories.CashCardRepository;
+import com.example.demo.repositories.CashCardSummaryRepository;
+import com.example.demo.repositories.CashCardVersionRepository;
+import com.example.demo.services.CashCardReadService;
+import com.example.demo.services.CashCardService;
+import com.example.demo.services.CashCardWriteBehindService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.security.Principal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/cashcards")
 public class CashCardController {
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private CashCardRepository cashCardRepository;
+    private CashCardService cashCardService;
+    private CashCardReadService cashCardReadService;
+    private CashCardSummaryRepository cashCardSummaryRepository;
+    private CashCardVersionRepository cashCardVersionRepository;
+    private ObjectWriter streamWriter;
+    private ObjectWriter smileStreamWriter;
+    private CashCardMetrics cashCardMetrics;
+    private Optional<CashCardWriteBehindService> cashCardWriteBehindService;
 
     /*
     Dit is de voorkeur injection methode, beter dan Autowired
 
     Spring's Auto Configuration is utilizing its dependency injection (DI) framework, specifically constructor injection, to supply CashCardController with the correct implementation of CashCardRepository at runtime.
      */
-    public CashCardController(CashCardRepository cashCardRepository) {
+    public CashCardController(CashCardRepository cashCardRepository, CashCardService cashCardService,
+                              CashCardReadService cashCardReadService,
+                              CashCardSummaryRepository cashCardSummaryRepository,
+                              CashCardVersionRepository cashCardVersionRepository, ObjectMapper objectMapper,
+                              MappingJackson2SmileHttpMessageConverter smileConverter, CashCardMetrics cashCardMetrics,
+                              Optional<CashCardWriteBehindService> cashCardWriteBehindService) {
         this.cashCardRepository = cashCardRepository;
+        this.cashCardService = cashCardService;
+        this.cashCardReadService = cashCardReadService;
+        this.cashCardSummaryRepository = cashCardSummaryRepository;
+        this.cashCardVersionRepository = cashCardVersionRepository;
+        this.streamWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.smileStreamWriter = smileConverter.getObjectMapper().writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.cashCardMetrics = cashCardMetrics;
+        this.cashCardWriteBehindService = cashCardWriteBehindService;
     }
 
     /*
     @PathVariable makes Spring Web aware of the requestedId supplied in the HTTP request.
     Now it’s available for us to use in our handler method.
+
+    ETag en Last-Modified komen uit CashCardVersionRepository. Bij een If-None-Match (of If-Modified-Since) die
+    overeenkomt wordt de kaart zelf niet gelezen: 304 zonder body. Een kaart die nog in het write-behind journal staat
+    heeft nog geen versie en krijgt geen ETag.
      */
     @GetMapping("/{requestedId}")
-    public ResponseEntity<CashCard> findById(@PathVariable Long requestedId) {
-        Optional<CashCard> cashCardOptional = cashCardRepository.findById(requestedId);
+    public ResponseEntity<CashCard> findById(@PathVariable Long requestedId, WebRequest webRequest) {
+        Optional<CashCardVersion> version = cashCardVersionRepository.findById(requestedId)
+                .map(current -> representation(webRequest, current));
+        if (version.isPresent() && notModified(webRequest, version.get())) {
+            return null;
+        }
+        // met write-behind kan een net aangemaakte kaart nog in het journal staan
+        Optional<CashCard> cashCardOptional = cashCardWriteBehindService
+                .flatMap(writeBehind -> writeBehind.findPending(requestedId))
+                .or(() -> cashCardReadService.findById(requestedId));
+        cashCardMetrics.rowsReturned("findById", cashCardOptional.isPresent() ? 1 : 0);
         if (cashCardOptional.isPresent()) {
-            return ResponseEntity.ok(cashCardOptional.get());
+            return ResponseEntity.ok()
+                    .headers(validators(version))
+                    .body(cashCardOptional.get());
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -49,9 +115,64 @@ met security:
 //    public ResponseEntity<CashCard> findById(@PathVariable Long requestedId, Principal principal) {
 //        CashCard cashCard = findCashCard(requestedId, principal);
 //
+    /*
+    De lijst endpoints (findAll, /paged en keyset) delen de ETag van de hele lijst: die verandert bij elke wijziging
+    van een kaart, dus een 304 betekent dat ook elke pagina nog klopt.
+     */
     @GetMapping()
-    public ResponseEntity<Iterable<CashCard>> findAll() {
-        return ResponseEntity.ok(cashCardRepository.findAll());
+    public ResponseEntity<Iterable<CashCard>> findAll(WebRequest webRequest) {
+        CashCardVersion version = representation(webRequest, cashCardVersionRepository.findAll());
+        if (notModified(webRequest, version)) {
+            return null;
+        }
+        Iterable<CashCard> cashCards = cashCardRepository.findAll();
+        if (cashCards instanceof Collection<CashCard> collection) {
+            cashCardMetrics.rowsReturned("findAll", collection.size());
+        }
+        return ResponseEntity.ok()
+                .headers(validators(Optional.of(version)))
+                .body(cashCards);
+    }
+
+    /*
+    Streaming export van alle cash cards, voor tabellen die te groot zijn om in één keer op de heap te laden.
+
+    /cashcards?stream=ndjson  -> één JSON object per regel (application/x-ndjson)
+    /cashcards?stream=json    -> één JSON array, chunked geschreven (application/json)
+    /cashcards?stream=smile   -> de kaarten als losse Smile waarden achter elkaar (application/x-jackson-smile)
+
+    De rijen komen via CashCardRepository.streamAll() over een JDBC cursor binnen en worden één voor één
+    naar de response geschreven, dus het geheugengebruik hangt niet af van het aantal rijen.
+    StreamingResponseBody draait op de MVC async executor, zodat de request thread direct vrij komt.
+     */
+    @GetMapping(params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamAll(@RequestParam String stream) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(stream);
+        boolean smile = "smile".equalsIgnoreCase(stream);
+        if (!ndjson && !smile && !"json".equalsIgnoreCase(stream)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<CashCard> cashCards = cashCardRepository.streamAll();
+                 SequenceWriter sequenceWriter = ndjson
+                         ? streamWriter.withRootValueSeparator("\n").writeValues(outputStream)
+                         : smile ? smileStreamWriter.writeValues(outputStream)
+                         : streamWriter.writeValuesAsArray(outputStream)) {
+                AtomicLong rows = new AtomicLong();
+                cashCards.forEach(cashCard -> {
+                    try {
+                        sequenceWriter.write(cashCard);
+                        rows.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                cashCardMetrics.rowsReturned("stream", rows.get());
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? APPLICATION_NDJSON : smile ? APPLICATION_SMILE : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     /*
@@ -68,15 +189,70 @@ sort=amount,desc
 Spring provides the default page and size values (they are 0 and 20, respectively).
      */
     @GetMapping("/paged")
-    public ResponseEntity<List<CashCard>> findAll(Pageable pageable) {
-        Page<CashCard> page = cashCardRepository.findAll(
+    public ResponseEntity<List<CashCard>> findAll(Pageable pageable, WebRequest webRequest) {
+        CashCardVersion version = representation(webRequest, cashCardVersionRepository.findAll());
+        if (notModified(webRequest, version)) {
+            return null;
+        }
+        Page<CashCard> page = cashCardReadService.findAll(
                 PageRequest.of(
                         pageable.getPageNumber(),
                         pageable.getPageSize(),
                         pageable.getSort()
 //                        pageable.getSortOr(Sort.by(Sort.Direction.ASC, "amount"))
                 ));
-        return ResponseEntity.ok(page.getContent());
+        cashCardMetrics.rowsReturned("paged", page.getNumberOfElements());
+        return ResponseEntity.ok()
+                .headers(validators(Optional.of(version)))
+                .body(page.getContent());
+    }
+
+    /*
+    Keyset (seek) paginering, de snelle variant van /cashcards/paged voor diepe pagina's.
+
+    /cashcards/paged?cursor=&size=20&sort=amount,desc  -> eerste pagina (lege cursor)
+    /cashcards/paged?cursor=<next>&size=20             -> volgende pagina, met de "next" token uit het vorige antwoord
+
+    Er wordt geen COUNT query gedaan en geen OFFSET gebruikt. De sortering (amount of id) zit in de token,
+    dus sort hoeft alleen bij de eerste pagina meegegeven te worden. "next" is null op de laatste pagina.
+     */
+    @GetMapping(value = "/paged", params = "cursor")
+    public ResponseEntity<CashCardPage> findPage(@RequestParam String cursor, Pageable pageable, WebRequest webRequest) {
+        CashCardCursor position;
+        try {
+            position = cursor.isEmpty() ? CashCardCursor.start(pageable.getSort()) : CashCardCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        CashCardVersion version = representation(webRequest, cashCardVersionRepository.findAll());
+        if (notModified(webRequest, version)) {
+            return null;
+        }
+        int size = pageable.getPageSize();
+        // één rij extra ophalen om te weten of er nog een volgende pagina is
+        List<CashCard> rows = cashCardReadService.findPage(position, size + 1);
+        if (rows.size() <= size) {
+            cashCardMetrics.rowsReturned("keyset", rows.size());
+            return ResponseEntity.ok()
+                    .headers(validators(Optional.of(version)))
+                    .body(new CashCardPage(rows, null));
+        }
+        List<CashCard> content = rows.subList(0, size);
+        cashCardMetrics.rowsReturned("keyset", size);
+        return ResponseEntity.ok()
+                .headers(validators(Optional.of(version)))
+                .body(new CashCardPage(content, position.after(content.get(size - 1)).encode()));
+    }
+
+    /*
+    Aantal kaarten en som, minimum en maximum van amount voor één owner.
+    Komt uit de bijgehouden cash_card_owner_summary tabel (zie JdbcCashCardSummaryRepository), of met
+    cashcard.storage=memory uit de owner indexen; er wordt niets geaggregeerd op het moment van opvragen.
+    404 als de owner geen kaarten heeft.
+     */
+    @GetMapping("/owners/{owner}/summary")
+    public ResponseEntity<CashCardSummary> findSummary(@PathVariable String owner) {
+        return ResponseEntity.of(cashCardSummaryRepository.findByOwner(owner));
     }
 
     /*
@@ -118,7 +294,16 @@ Finally, we return 201 CREATED with the correct Location header.
      */
     @PostMapping
     private ResponseEntity<Void> createCashCard(@RequestBody CashCard newCashCardRequest, UriComponentsBuilder ucb) {
-        CashCard savedCashCard = cashCardRepository.save(newCashCardRequest);
+        CashCard savedCashCard;
+        if (cashCardWriteBehindService.isPresent()) {
+            try {
+                savedCashCard = cashCardWriteBehindService.get().create(newCashCardRequest);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        } else {
+            savedCashCard = cashCardService.create(newCashCardRequest);
+        }
         URI locationOfNewCashCard = ucb
                 .path("cashcards/{id}")
                 .buildAndExpand(savedCashCard.id())
@@ -128,16 +313,23 @@ Finally, we return 201 CREATED with the correct Location header.
 
     /*
     PUT voor update
+
+    Met If-Match alleen als de kaart nog de versie heeft die de client kent (ETag uit een eerdere GET); anders, of
+    als de kaart er niet is, 412 Precondition Failed en blijft alles ongewijzigd.
+    Een kaart die nog in het write-behind journal staat kan nog niet gewijzigd worden: 409, de client probeert het
+    na de flush opnieuw.
      */
     @PutMapping("/{requestedId}")
-    private ResponseEntity<Void> putCashCard(@PathVariable Long requestedId, @RequestBody CashCard cashCardUpdate) {
-        CashCard cashCard = cashCardRepository.findByIdAndOwner(requestedId, "sarah1");
-        if (cashCard != null) {
-            CashCard updatedCashCard = new CashCard(cashCard.id(), cashCardUpdate.amount(), "sarah1");
-            cashCardRepository.save(updatedCashCard);
-            return ResponseEntity.noContent().build();
+    private ResponseEntity<Void> putCashCard(@PathVariable Long requestedId, @RequestBody CashCard cashCardUpdate,
+                                             @RequestHeader HttpHeaders headers) {
+        if (isPending(requestedId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        List<String> ifMatch = headers.getIfMatch();
+        Optional<CashCard> updatedCashCard = cashCardService.update(requestedId, "sarah1", cashCardUpdate.amount(), ifMatch);
+        if (updatedCashCard.isEmpty() && !ifMatch.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
-
         return ResponseEntity.noContent().build();
     }
 
@@ -154,10 +346,65 @@ Finally, we return 201 CREATED with the correct Location header.
 //        }
 //    }
 
+    // zet bij een match zelf 304 en de headers, de handler geeft dan null terug zodat er geen body geschreven wordt
+    private static boolean notModified(WebRequest webRequest, CashCardVersion version) {
+        return webRequest.checkNotModified(version.eTag(), version.lastModified().toEpochMilli());
+    }
+
+    /*
+    De versie van de representatie die MVC voor deze request kiest: Smile als de client dat liever heeft dan JSON
+    (zelfde volgorde als de content negotiation: specifiek en hoge q eerst), anders JSON, ook bij een wildcard.
+    JSON en Smile van dezelfde versie krijgen zo elk een eigen sterke ETag, en een 304 past altijd bij het formaat.
+     */
+    private static CashCardVersion representation(WebRequest webRequest, CashCardVersion version) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return version;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return version;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.equalsTypeAndSubtype(APPLICATION_SMILE)) {
+                return version.variant("smile");
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return version;
+            }
+        }
+        return version;
+    }
+
+    // Vary: Accept omdat de ETag en de body van Accept afhangen
+    private static HttpHeaders validators(Optional<CashCardVersion> version) {
+        HttpHeaders headers = new HttpHeaders();
+        version.ifPresent(present -> {
+            headers.setETag(present.eTag());
+            headers.setLastModified(present.lastModified());
+            headers.setVary(List.of(HttpHeaders.ACCEPT));
+        });
+        return headers;
+    }
+
+    // net als bij PUT: 409 voor een kaart die nog in het write-behind journal staat
     @DeleteMapping("/{id}")
     private ResponseEntity<Void> deleteCashCard(@PathVariable Long id) {
-        cashCardRepository.deleteById(id); // Add this line
+        if (isPending(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        cashCardService.delete(id);
         return ResponseEntity.noContent().build();
     }
 
+    private boolean isPending(Long id) {
+        return cashCardWriteBehindService.flatMap(writeBehind -> writeBehind.findPending(id)).isPresent();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCardBalance;
+import com.example.demo.repositories.CashCardLedgerRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+/*
+GET /cashcards/{id}/balance?at=2023-06-01T12:00:00Z
+
+Saldo van een kaart op een moment in het verleden, uit de ledger (zonder at: nu). 404 als de kaart toen niet bestond
+of het moment ouder is dan de retentie van de ledger.
+ */
+@RestController
+@RequestMapping("/cashcards/{requestedId}/balance")
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardLedgerController {
+
+    private CashCardLedgerRepository cashCardLedgerRepository;
+
+    public CashCardLedgerController(CashCardLedgerRepository cashCardLedgerRepository) {
+        this.cashCardLedgerRepository = cashCardLedgerRepository;
+    }
+
+    @GetMapping
+    public ResponseEntity<CashCardBalance> findBalance(@PathVariable Long requestedId,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) {
+        Instant moment = at != null ? at : Instant.now();
+        return ResponseEntity.of(cashCardLedgerRepository.findBalanceAt(requestedId, moment)
+                .map(balance -> new CashCardBalance(requestedId, moment, balance)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCardTransaction;
+import com.example.demo.services.CashCardTransactionService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+/*
+POST /cashcards/{id}/transactions   {"amount": -12.50}
+
+Boekt een bedrag bij (positief) of af (negatief) zonder dat de client eerst het saldo hoeft op te halen, en zonder
+dat gelijktijdige boekingen elkaar overschrijven zoals bij twee PUTs. Het antwoord is de boeking met het nieuwe saldo.
+
+Met een Idempotency-Key header kan een client veilig opnieuw proberen: een sleutel die al voor deze kaart geboekt is
+geeft hetzelfde antwoord en boekt niets. Dezelfde sleutel met een ander bedrag geeft 422.
+
+Een afboeking waarvoor het saldo niet toereikt geeft 409 en boekt niets; met dezelfde sleutel kan het later opnieuw.
+Hetzelfde geldt voor een bijboeking waarbij het saldo niet meer in een long (centen) past.
+ */
+@RestController
+@RequestMapping("/cashcards/{requestedId}/transactions")
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardTransactionController {
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 256;
+
+    private CashCardTransactionService cashCardTransactionService;
+
+    public CashCardTransactionController(CashCardTransactionService cashCardTransactionService) {
+        this.cashCardTransactionService = cashCardTransactionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<CashCardTransaction> postTransaction(@PathVariable Long requestedId,
+                                                               @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                               @RequestBody CashCardTransaction transactionRequest) {
+        if (idempotencyKey != null && (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<CashCardTransaction> transaction;
+        try {
+            transaction = cashCardTransactionService.apply(requestedId, transactionRequest.amount(), idempotencyKey);
+        } catch (CashCardTransactionService.InsufficientFundsException
+                 | CashCardTransactionService.BalanceOverflowException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (transaction.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (transaction.get().amount() != transactionRequest.amount()) {
+            return ResponseEntity.unprocessableEntity().build();
+        }
+        return ResponseEntity.ok(transaction.get());
+    }
+}
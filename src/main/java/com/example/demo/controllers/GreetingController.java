@@ -1,18 +1,35 @@
 package com.example.demo.controllers;
 
+import com.example.demo.model.Greeting;
+import com.example.demo.services.GreetingService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
 
+/*
+De pagina komt kant-en-klaar uit GreetingService (gecached per name) in plaats van via een view te renderen.
+Door de ETag op de ResponseEntity geeft Spring MVC zelf 304 zonder body als If-None-Match overeenkomt.
+ */
 @Controller
 public class GreetingController {
 
+    private static final MediaType TEXT_HTML_UTF8 = MediaType.parseMediaType("text/html;charset=UTF-8");
+
+    private GreetingService greetingService;
+
+    public GreetingController(GreetingService greetingService) {
+        this.greetingService = greetingService;
+    }
+
     @GetMapping("/greeting")
-    public String greeting(@RequestParam(name="name", required=false, defaultValue="World") String name, Model model) {
-        model.addAttribute("name", name);
-        return "greeting";
+    public ResponseEntity<String> greeting(@RequestParam(name="name", required=false, defaultValue="World") String name) {
+        Greeting greeting = greetingService.render(name);
+        return ResponseEntity.ok()
+                .contentType(TEXT_HTML_UTF8)
+                .eTag(greeting.eTag())
+                .body(greeting.html());
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.repositories.ReactiveCashCardRepository;
+import com.example.demo.services.ReactiveCashCardService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+/*
+Dezelfde routes als CashCardController, maar non-blocking: /reactive/cashcards.
+
+Spring MVC abonneert zich zelf op de Mono of Flux en geeft de request thread direct terug aan Tomcat; het antwoord wordt
+geschreven zodra R2DBC de rijen levert. Er zit dus geen thread vast terwijl de database bezig is.
+
+Lijsten (/reactive/cashcards en /reactive/cashcards/paged):
+Accept: application/json      -> de rijen worden verzameld en als één JSON array geschreven (zoals /cashcards)
+Accept: application/x-ndjson  -> elke kaart wordt geschreven zodra hij binnenkomt. MVC vraagt de volgende rij pas op
+                                 als de vorige naar de client is geschreven, dus een trage client remt de query af
+                                 (backpressure) in plaats van dat alles in het geheugen wordt gebufferd.
+MVC streamt een Flux zodra ndjson in produces staat, daarom zijn het per route twee methodes.
+ */
+@RestController
+@RequestMapping("/reactive/cashcards")
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class ReactiveCashCardController {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private ReactiveCashCardRepository reactiveCashCardRepository;
+    private ReactiveCashCardService reactiveCashCardService;
+
+    public ReactiveCashCardController(ReactiveCashCardRepository reactiveCashCardRepository,
+                                      ReactiveCashCardService reactiveCashCardService) {
+        this.reactiveCashCardRepository = reactiveCashCardRepository;
+        this.reactiveCashCardService = reactiveCashCardService;
+    }
+
+    @GetMapping("/{requestedId}")
+    public Mono<ResponseEntity<CashCard>> findById(@PathVariable Long requestedId) {
+        return reactiveCashCardRepository.findById(requestedId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping
+    public Mono<List<CashCard>> findAll() {
+        return streamAll().collectList();
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public Flux<CashCard> streamAll() {
+        return reactiveCashCardRepository.findAll();
+    }
+
+    /*
+    Zelfde parameters als /cashcards/paged: page, size en sort.
+     */
+    @GetMapping("/paged")
+    public Mono<List<CashCard>> findAll(Pageable pageable) {
+        return streamPage(pageable).collectList();
+    }
+
+    @GetMapping(value = "/paged", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<CashCard> streamPage(Pageable pageable) {
+        return reactiveCashCardRepository.findAllBy(
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort()));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> createCashCard(@RequestBody CashCard newCashCardRequest, UriComponentsBuilder ucb) {
+        return reactiveCashCardService.create(newCashCardRequest)
+                .map(savedCashCard -> {
+                    URI locationOfNewCashCard = ucb
+                            .path("reactive/cashcards/{id}")
+                            .buildAndExpand(savedCashCard.id())
+                            .toUri();
+                    return ResponseEntity.created(locationOfNewCashCard).build();
+                });
+    }
+
+    /*
+    Net als putCashCard: alleen kaarten van sarah1, en ook 204 als er niets bij te werken was.
+     */
+    @PutMapping("/{requestedId}")
+    public Mono<ResponseEntity<Void>> putCashCard(@PathVariable Long requestedId, @RequestBody CashCard cashCardUpdate) {
+        return reactiveCashCardService.update(requestedId, "sarah1", cashCardUpdate.amount())
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteCashCard(@PathVariable Long id) {
+        return reactiveCashCardService.delete(id)
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/*
+Eigen metrics van de /cashcards endpoints, naast de timers die Spring Boot zelf al levert:
+
+http.server.requests               tijd per endpoint (uri tag), inclusief JSON binding
+spring.data.repository.invocations tijd per CashCardRepository methode (method tag)
+cashcard.rows.returned             aantal cash cards per response, per endpoint
+cashcard.payload.bytes             grootte van request en response body, zie PayloadMetricsFilter
+cashcard.admission.rejected        geweigerde requests per reden (rate_limited, queue_full, queue_timeout)
+cashcard.admission.queue.wait      wachttijd in de admission wachtrij van toegelaten requests
+cashcard.admission.limit|in.flight|queued  de adaptieve limiet en hoeveel requests er lopen en wachten
+Alle cashcard.admission metrics komen van AdmissionControlFilter.
+
+De summaries worden één keer per tag aangemaakt en daarna hergebruikt, zodat er per request geen meter lookup is.
+ */
+@Component
+public class CashCardMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> rowsReturned = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> payloadBytes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> admissionRejected = new ConcurrentHashMap<>();
+    private final Timer admissionQueueWait;
+
+    public CashCardMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.admissionQueueWait = Timer.builder("cashcard.admission.queue.wait")
+                .description("Time admitted /cashcards requests waited for a concurrency slot")
+                .register(meterRegistry);
+    }
+
+    public void rowsReturned(String endpoint, long rows) {
+        rowsReturned.computeIfAbsent(endpoint, tag -> DistributionSummary.builder("cashcard.rows.returned")
+                        .description("Number of cash cards returned per response")
+                        .baseUnit("rows")
+                        .tag("endpoint", tag)
+                        .register(meterRegistry))
+                .record(rows);
+    }
+
+    void payloadBytes(String uri, String direction, long bytes) {
+        payloadBytes.computeIfAbsent(uri + ' ' + direction, key -> DistributionSummary.builder("cashcard.payload.bytes")
+                        .description("Size of request and response bodies on /cashcards")
+                        .baseUnit("bytes")
+                        .tag("uri", uri)
+                        .tag("direction", direction)
+                        .register(meterRegistry))
+                .record(bytes);
+    }
+
+    public void admissionRejected(String reason) {
+        admissionRejected.computeIfAbsent(reason, tag -> Counter.builder("cashcard.admission.rejected")
+                        .description("Requests on /cashcards rejected by admission control")
+                        .tag("reason", tag)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void admissionQueueWait(long nanos) {
+        admissionQueueWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void admissionGauge(String name, String description, T state, ToDoubleFunction<T> value) {
+        Gauge.builder("cashcard.admission." + name, state, value)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
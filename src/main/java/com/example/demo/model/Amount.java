@@ -0,0 +1,120 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/*
+Bedragen worden opgeslagen als long in centen (minor units, SCALE = 2 decimalen): 123.45 is 12345.
+In de database is dat een BIGINT, in Java een primitive long. Optellen en sorteren is exact, er is geen afrondingsverschil
+zoals bij double, en er hoeft per rij geen Double of BigDecimal aangemaakt te worden.
+
+In JSON blijft een bedrag een decimaal getal, zoals voorheen met Double: 12345 wordt 123.45, 100 wordt 1.0.
+Binnenkomende bedragen met meer dan twee decimalen worden geweigerd in plaats van afgerond, net als een ontbrekend
+of null bedrag.
+ */
+public final class Amount {
+
+    public static final int SCALE = 2;
+    private static final long UNIT = 100;
+
+    private Amount() {
+    }
+
+    // gooit ArithmeticException bij meer dan SCALE decimalen of een te groot bedrag
+    public static long of(BigDecimal value) {
+        return value.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /*
+    Schrijft 12345 als 123.45 en 15000 als 150.0, precies zoals Double.toString dat voor deze bedragen deed.
+    Voor JSON gaan de cijfers direct vanuit een char[] naar de generator; binaire formaten (Smile) krijgen een
+    BigDecimal, want een double is boven 2^53 centen niet meer exact.
+     */
+    public static final class Serializer extends StdSerializer<Long> {
+
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            long minorUnits = value;
+            if (generator.canWriteBinaryNatively()) {
+                generator.writeNumber(toDecimal(minorUnits));
+                return;
+            }
+            char[] buffer = new char[24];
+            int length = format(minorUnits, buffer);
+            generator.writeNumber(buffer, 0, length);
+        }
+
+        static int format(long minorUnits, char[] buffer) {
+            int position = buffer.length;
+            // eerst delen, dan pas abs: Math.abs(Long.MIN_VALUE) is nog steeds negatief
+            long remaining = Math.abs(minorUnits / UNIT);
+            int cents = (int) Math.abs(minorUnits % UNIT);
+            if (cents % 10 != 0) {
+                buffer[--position] = (char) ('0' + cents % 10);
+            }
+            buffer[--position] = (char) ('0' + cents / 10);
+            buffer[--position] = '.';
+            do {
+                buffer[--position] = (char) ('0' + remaining % 10);
+                remaining /= 10;
+            } while (remaining > 0);
+            if (minorUnits < 0) {
+                buffer[--position] = '-';
+            }
+            int length = buffer.length - position;
+            System.arraycopy(buffer, position, buffer, 0, length);
+            return length;
+        }
+    }
+
+    public static final class Deserializer extends StdDeserializer<Long> {
+
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                try {
+                    return Math.multiplyExact(parser.getLongValue(), UNIT);
+                } catch (ArithmeticException e) {
+                    return (Long) context.handleWeirdNumberValue(Long.class, parser.getNumberValue(), "amount out of range");
+                }
+            }
+            if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                try {
+                    return of(parser.getDecimalValue());
+                } catch (ArithmeticException e) {
+                    return (Long) context.handleWeirdNumberValue(Long.class, parser.getNumberValue(),
+                            "amount must have at most " + SCALE + " decimals");
+                }
+            }
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+
+        // ook voor een ontbrekend amount: er is geen "geen bedrag", en 0 zou een saldo stil op nul zetten
+        @Override
+        public Long getNullValue(DeserializationContext context) throws JsonMappingException {
+            return context.reportInputMismatch(this, "amount is required");
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
 
 /*
 CrudRepository<CashCard, Long> we indicate that the CashCard's ID is Long. However, we still need to tell Spring Data
 which field is the ID: @Id
 Dit lost de volgend emelding op: IllegalStateException: Required identifier property not found for class com.example.demo.model.CashCard
  */
-public record CashCard(@Id Long id, Double amount, String owner) {
+/*
+@Table is nodig omdat er zowel Spring Data JDBC als Spring Data R2DBC op het classpath staat: zonder de annotatie weet
+Spring Data niet welke van de twee CashCardRepository en ReactiveCashCardRepository moet maken. De tabelnaam blijft
+de afgeleide naam cash_card.
+ */
+/*
+amount is in centen, zie Amount. In JSON blijft het een decimaal getal.
+ */
+@Table
+public record CashCard(@Id Long id,
+                       @JsonSerialize(using = Amount.Serializer.class) @JsonDeserialize(using = Amount.Deserializer.class) long amount,
+                       String owner) {
 }
@@ -0,0 +1,11 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.Instant;
+
+/*
+Saldo van een cash card op een bepaald moment, uit de ledger (zie CashCardLedgerRepository). balance in centen.
+ */
+public record CashCardBalance(Long cashCardId, Instant at, @JsonSerialize(using = Amount.Serializer.class) long balance) {
+}
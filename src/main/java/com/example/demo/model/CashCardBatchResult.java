@@ -0,0 +1,9 @@
+package com.example.demo.model;
+
+/*
+Resultaat van één item uit een batch request op /cashcards/batch.
+index is de positie van het item in de request, status de HTTP status die het item als los request gekregen zou hebben
+(201 aangemaakt, 204 bijgewerkt/verwijderd, 404 niet gevonden, 400 ongeldig).
+ */
+public record CashCardBatchResult(int index, Long id, int status) {
+}
@@ -0,0 +1,7 @@
+package com.example.demo.model;
+
+/*
+Eén wijziging aan een cash card: before is null bij aanmaken, after is null bij verwijderen.
+ */
+public record CashCardChange(CashCard before, CashCard after) {
+}
@@ -0,0 +1,49 @@
+package com.example.demo.model;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+Positie in een keyset (seek) gepagineerde lijst van cash cards.
+
+In plaats van LIMIT/OFFSET onthouden we de sorteersleutel en het id van de laatste rij van de vorige pagina.
+De volgende pagina begint direct na die (sort key, id) combinatie, zodat de database via de index naar de juiste
+plek kan springen: pagina N kost evenveel als pagina 1. Het id is de tiebreaker voor gelijke bedragen.
+
+Naar de client gaat alleen de opaque token uit encode(), niet de velden zelf.
+ */
+public record CashCardCursor(String property, boolean descending, Long amount, Long id) {
+
+    public static CashCardCursor start(Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.asc("id"));
+        if (!order.getProperty().equals("amount") && !order.getProperty().equals("id")) {
+            throw new IllegalArgumentException("Keyset paging supports sorting on amount or id, not " + order.getProperty());
+        }
+        return new CashCardCursor(order.getProperty(), order.isDescending(), null, null);
+    }
+
+    public static CashCardCursor decode(String token) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", -1);
+        if (parts.length != 4 || !(parts[0].equals("amount") || parts[0].equals("id"))
+                || parts[0].equals("amount") && parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new CashCardCursor(parts[0], parts[1].equals("desc"),
+                parts[2].isEmpty() ? null : Long.valueOf(parts[2]), Long.valueOf(parts[3]));
+    }
+
+    public boolean isStart() {
+        return id == null;
+    }
+
+    public CashCardCursor after(CashCard last) {
+        return new CashCardCursor(property, descending, property.equals("amount") ? last.amount() : null, last.id());
+    }
+
+    public String encode() {
+        String value = property + ":" + (descending ? "desc" : "asc") + ":" + (amount == null ? "" : amount) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
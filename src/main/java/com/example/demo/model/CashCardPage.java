@@ -0,0 +1,10 @@
+package com.example.demo.model;
+
+import java.util.List;
+
+/*
+Eén pagina uit /cashcards/paged?cursor=...
+next is de token voor de volgende pagina, of null als dit de laatste pagina is.
+ */
+public record CashCardPage(List<CashCard> content, String next) {
+}
@@ -0,0 +1,13 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*
+Aantal, totaal, minimum en maximum van de amounts van alle cash cards van één owner.
+Bedragen in centen, net als CashCard.amount.
+ */
+public record CashCardSummary(String owner, long count,
+                              @JsonSerialize(using = Amount.Serializer.class) long sum,
+                              @JsonSerialize(using = Amount.Serializer.class) long min,
+                              @JsonSerialize(using = Amount.Serializer.class) long max) {
+}
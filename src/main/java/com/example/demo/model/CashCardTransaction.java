@@ -0,0 +1,14 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*
+Eén bij- of afboeking op een cash card via POST /cashcards/{id}/transactions.
+amount is de (signed) wijziging, balance het saldo van de kaart direct na deze boeking. Beide in centen, zie Amount.
+In de request is alleen amount nodig.
+ */
+public record CashCardTransaction(Long cashCardId,
+                                  @JsonSerialize(using = Amount.Serializer.class) @JsonDeserialize(using = Amount.Deserializer.class) long amount,
+                                  @JsonSerialize(using = Amount.Serializer.class) long balance) {
+}
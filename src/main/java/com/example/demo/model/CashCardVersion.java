@@ -0,0 +1,28 @@
+package com.example.demo.model;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/*
+Validator van een cash card of van de hele lijst, voor ETag en Last-Modified, zie CashCardVersionRepository.
+eTag is een sterke ETag inclusief quotes, dus direct bruikbaar als header.
+
+Een sterke ETag hoort bij precies één reeks bytes, dus een andere representatie van dezelfde versie (Smile in plaats
+van JSON) krijgt een eigen ETag via variant: "12" wordt "12-smile".
+ */
+public record CashCardVersion(String eTag, Instant lastModified) {
+
+    public CashCardVersion variant(String variant) {
+        return new CashCardVersion(eTag.substring(0, eTag.length() - 1) + "-" + variant + "\"", lastModified);
+    }
+
+    /*
+    If-Match: "*" of een van de ETags moet exact (sterk) overeenkomen, een weak ETag (W/"...") matcht nooit.
+    De ETag van elke representatie van deze versie telt: een PUT gaat over de kaart, niet over het formaat.
+     */
+    public boolean matchesAny(Collection<String> eTags) {
+        String variantPrefix = eTag.substring(0, eTag.length() - 1) + "-";
+        return eTags.stream().anyMatch(eTag -> eTag.equals("*") || eTag.equals(this.eTag)
+                || (eTag.startsWith(variantPrefix) && eTag.endsWith("\"")));
+    }
+}
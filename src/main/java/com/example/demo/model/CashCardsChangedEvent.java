@@ -0,0 +1,11 @@
+package com.example.demo.model;
+
+import java.util.List;
+
+/*
+Wordt gepubliceerd binnen de transactie die de cash cards wijzigt, nadat de rijen in cash_card zijn geschreven.
+Listeners die afgeleide data bijhouden (zoals JdbcCashCardSummaryRepository) draaien synchroon en dus in dezelfde transactie.
+Batch schrijfacties publiceren één event per chunk in plaats van één per kaart.
+ */
+public record CashCardsChangedEvent(List<CashCardChange> changes) {
+}
@@ -0,0 +1,7 @@
+package com.example.demo.model;
+
+/*
+Een gerenderde /greeting pagina met zijn sterke ETag (hash van de HTML), zie GreetingService.
+ */
+public record Greeting(String html, String eTag) {
+}
@@ -0,0 +1,225 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardBatchResult;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Bulk schrijven van cash cards met JDBC batching, voor imports van duizenden kaarten tegelijk.
+
+CashCardRepository.save doet per kaart een eigen statement, round-trip en transactie. Hier gaat een hele chunk
+(cashcard.batch.chunk-size) in één executeBatch en één transactie. Elke chunk commit los, dus een fout in een
+latere chunk draait eerdere chunks niet terug.
+
+Omdat dit buiten CashCardRepository om schrijft, worden de caches hier zelf geëvict, na de commit van de chunk.
+Per chunk gaat er binnen de transactie één CashCardsChangedEvent uit, net als bij CashCardService. Voor update en
+delete worden de bestaande rijen daarvoor eerst in één query gelezen en gelockt.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final RowMapper<CashCard> rowMapper = new DataClassRowMapper<>(CashCard.class);
+
+    public CashCardBatchRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, CacheManager cacheManager,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${cashcard.batch.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /*
+    Insert alle geldige kaarten uit de chunk in één batch en geeft per item het gegenereerde id terug.
+    firstIndex is de positie van het eerste item van de chunk in de complete request. Een null item kon niet gelezen
+    worden (bijvoorbeeld zonder amount) en krijgt 400, net als een item zonder owner.
+     */
+    public List<CashCardBatchResult> insertAll(List<CashCard> chunk, int firstIndex) {
+        List<CashCardBatchResult> results = new ArrayList<>(chunk.size());
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            CashCard cashCard = chunk.get(i);
+            if (cashCard == null || cashCard.owner() == null) {
+                results.add(new CashCardBatchResult(firstIndex + i, null, HttpStatus.BAD_REQUEST.value()));
+            } else {
+                results.add(null);
+                valid.add(i);
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> generated = jdbcTemplate.execute(
+                    connection -> connection.prepareStatement("INSERT INTO cash_card (amount, owner) VALUES (?, ?)", new String[]{"ID"}),
+                    (PreparedStatement statement) -> {
+                        for (int i : valid) {
+                            statement.setLong(1, chunk.get(i).amount());
+                            statement.setString(2, chunk.get(i).owner());
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        List<Long> keys = new ArrayList<>(valid.size());
+                        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                            while (resultSet.next()) {
+                                keys.add(resultSet.getLong(1));
+                            }
+                        }
+                        return keys;
+                    });
+            List<CashCardChange> changes = new ArrayList<>(valid.size());
+            for (int k = 0; k < valid.size(); k++) {
+                CashCard cashCard = chunk.get(valid.get(k));
+                changes.add(new CashCardChange(null, new CashCard(generated.get(k), cashCard.amount(), cashCard.owner())));
+            }
+            publish(changes);
+            return generated;
+        });
+        // een eerdere GET op het nieuwe id kan een miss gecachet hebben, zie CashCardRepository
+        Cache byId = cacheManager.getCache(CashCardCaches.BY_ID);
+        Cache byIdAndOwner = cacheManager.getCache(CashCardCaches.BY_ID_AND_OWNER);
+        for (int k = 0; k < valid.size(); k++) {
+            int i = valid.get(k);
+            byId.evict(ids.get(k));
+            byIdAndOwner.evict(CashCardCaches.ownerKey(ids.get(k), chunk.get(i).owner()));
+            results.set(i, new CashCardBatchResult(firstIndex + i, ids.get(k), HttpStatus.CREATED.value()));
+        }
+        return results;
+    }
+
+    /*
+    Zet het bedrag van bestaande kaarten, zoals putCashCard dat per kaart doet. Een kaart wordt alleen bijgewerkt
+    als id en owner overeenkomen, anders krijgt het item 404. Null items krijgen 400, zie insertAll.
+     */
+    public List<CashCardBatchResult> updateAll(List<CashCard> chunk, int firstIndex) {
+        List<CashCardBatchResult> results = new ArrayList<>(chunk.size());
+        List<Object[]> arguments = new ArrayList<>(chunk.size());
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            CashCard cashCard = chunk.get(i);
+            if (cashCard == null || cashCard.id() == null || cashCard.owner() == null) {
+                results.add(new CashCardBatchResult(firstIndex + i, cashCard == null ? null : cashCard.id(), HttpStatus.BAD_REQUEST.value()));
+            } else {
+                results.add(null);
+                valid.add(i);
+                arguments.add(new Object[]{cashCard.amount(), cashCard.id(), cashCard.owner()});
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+        int[] counts = transactionTemplate.execute(status -> {
+            Map<Long, CashCard> current = lockAll(valid.stream().map(i -> chunk.get(i).id()).toList());
+            int[] updated = jdbcTemplate.batchUpdate("UPDATE cash_card SET amount = ? WHERE id = ? AND owner = ?", arguments);
+            List<CashCardChange> changes = new ArrayList<>(valid.size());
+            for (int k = 0; k < valid.size(); k++) {
+                if (updated[k] > 0) {
+                    CashCard after = chunk.get(valid.get(k));
+                    // current bijwerken, zodat een id dat twee keer in de chunk staat de juiste oude waarde krijgt
+                    changes.add(new CashCardChange(current.put(after.id(), after), after));
+                }
+            }
+            publish(changes);
+            return updated;
+        });
+        Cache byId = cacheManager.getCache(CashCardCaches.BY_ID);
+        Cache byIdAndOwner = cacheManager.getCache(CashCardCaches.BY_ID_AND_OWNER);
+        for (int k = 0; k < valid.size(); k++) {
+            int i = valid.get(k);
+            CashCard cashCard = chunk.get(i);
+            boolean updated = counts[k] > 0;
+            if (updated) {
+                byId.evict(cashCard.id());
+                byIdAndOwner.evict(CashCardCaches.ownerKey(cashCard.id(), cashCard.owner()));
+            }
+            results.set(i, new CashCardBatchResult(firstIndex + i, cashCard.id(),
+                    updated ? HttpStatus.NO_CONTENT.value() : HttpStatus.NOT_FOUND.value()));
+        }
+        return results;
+    }
+
+    public List<CashCardBatchResult> deleteAll(List<Long> chunk, int firstIndex) {
+        List<CashCardBatchResult> results = new ArrayList<>(chunk.size());
+        List<Object[]> arguments = new ArrayList<>(chunk.size());
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i) == null) {
+                results.add(new CashCardBatchResult(firstIndex + i, null, HttpStatus.BAD_REQUEST.value()));
+            } else {
+                results.add(null);
+                valid.add(i);
+                arguments.add(new Object[]{chunk.get(i)});
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+        int[] counts = transactionTemplate.execute(status -> {
+            Map<Long, CashCard> current = lockAll(valid.stream().map(chunk::get).toList());
+            int[] deleted = jdbcTemplate.batchUpdate("DELETE FROM cash_card WHERE id = ?", arguments);
+            List<CashCardChange> changes = new ArrayList<>(valid.size());
+            for (int k = 0; k < valid.size(); k++) {
+                if (deleted[k] > 0) {
+                    changes.add(new CashCardChange(current.get(chunk.get(valid.get(k))), null));
+                }
+            }
+            publish(changes);
+            return deleted;
+        });
+        Cache byId = cacheManager.getCache(CashCardCaches.BY_ID);
+        for (int k = 0; k < valid.size(); k++) {
+            int i = valid.get(k);
+            byId.evict(chunk.get(i));
+            results.set(i, new CashCardBatchResult(firstIndex + i, chunk.get(i),
+                    counts[k] > 0 ? HttpStatus.NO_CONTENT.value() : HttpStatus.NOT_FOUND.value()));
+        }
+        // net als bij deleteById is de owner onbekend
+        cacheManager.getCache(CashCardCaches.BY_ID_AND_OWNER).clear();
+        return results;
+    }
+
+    private Map<Long, CashCard> lockAll(List<Long> ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Long, CashCard> cashCards = new HashMap<>();
+        jdbcTemplate.query("SELECT * FROM cash_card WHERE id IN (" + placeholders + ") FOR UPDATE", rowMapper, ids.toArray())
+                .forEach(cashCard -> cashCards.put(cashCard.id(), cashCard));
+        return cashCards;
+    }
+
+    private void publish(List<CashCardChange> changes) {
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new CashCardsChangedEvent(changes));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.repositories;
+
+/*
+Namen en sleutels van de caches voor CashCardRepository.
+
+BY_ID            findById(id)                  sleutel: id
+BY_ID_AND_OWNER  findByIdAndOwner(id, owner)   sleutel: "id:owner"
+VERSIONS         JdbcCashCardVersionRepository sleutel: id, of "all" voor de lijst
+
+Grootte en TTL staan in spring.cache.caffeine.spec. De @CacheEvict annotaties op CashCardRepository gebruiken
+dezelfde sleutels als SpEL; code die buiten de repository om schrijft moet via ownerKey() evicten.
+ */
+public final class CashCardCaches {
+
+    public static final String BY_ID = "cashCards";
+    public static final String BY_ID_AND_OWNER = "cashCardsByOwner";
+    public static final String VERSIONS = "cashCardVersions";
+
+    private CashCardCaches() {
+    }
+
+    public static String ownerKey(Long id, String owner) {
+        return id + ":" + owner;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardsChangedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/*
+Append-only ledger van alle wijzigingen aan cash cards (cash_card_ledger) met per kaart snapshots van het saldo
+(cash_card_snapshot).
+
+Elke CashCardsChangedEvent levert per gewijzigde kaart één entry op, in dezelfde transactie als de wijziging:
+amount is het verschil (bij aanmaken het hele bedrag), deleted is true bij verwijderen. Een samengevoegde batch
+boekingen uit CashCardTransactionService is één entry met de som.
+
+Het saldo op tijdstip t is de laatste snapshot op of voor t plus de entries daarna tot en met t. Omdat er periodiek
+snapshots worden gemaakt (snapshot) is die staart kort, hoe lang de geschiedenis ook is. compact vouwt entries ouder
+dan de retentie in een snapshot en verwijdert ze, zodat de ledger niet onbeperkt groeit. Saldi van voor de oudste
+snapshot zijn daarna niet meer op te vragen. Zie CashCardLedgerCompactionJob.
+
+Snapshot met balance NULL: de kaart bestond op dat moment niet (meer).
+De kaarten die er al waren voordat de ledger bestond krijgen een openingssnapshot met ledger_id 0, zie data.sql.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardLedgerRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CashCardLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener
+    public void onCashCardsChanged(CashCardsChangedEvent event) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> entries = new ArrayList<>(event.changes().size());
+        for (CashCardChange change : event.changes()) {
+            if (change.after() == null) {
+                entries.add(new Object[]{change.before().id(), -change.before().amount(), true, now});
+            } else {
+                long before = change.before() == null ? 0 : change.before().amount();
+                entries.add(new Object[]{change.after().id(), change.after().amount() - before, false, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cash_card_ledger (cash_card_id, amount, deleted, created_at) VALUES (?, ?, ?, ?)", entries);
+    }
+
+    /*
+    Saldo van de kaart op tijdstip at, of empty als de kaart toen niet bestond of at voor de oudste snapshot ligt.
+     */
+    public Optional<Long> findBalanceAt(Long id, Instant at) {
+        return balance(id, Long.MAX_VALUE, Timestamp.from(at)).balance();
+    }
+
+    /*
+    Maakt een snapshot voor elke kaart met minstens minEntries entries na zijn laatste snapshot.
+    Geeft het aantal nieuwe snapshots terug.
+     */
+    public int snapshot(int minEntries) {
+        List<Object[]> tails = jdbcTemplate.query("""
+                        SELECT l.cash_card_id, MAX(l.id) FROM cash_card_ledger l
+                        WHERE l.id > COALESCE((SELECT MAX(s.ledger_id) FROM cash_card_snapshot s WHERE s.cash_card_id = l.cash_card_id), -1)
+                        GROUP BY l.cash_card_id HAVING COUNT(*) >= ?
+                        """,
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2)}, minEntries);
+        for (Object[] tail : tails) {
+            insertSnapshot((Long) tail[0], (Long) tail[1]);
+        }
+        return tails.size();
+    }
+
+    /*
+    Vouwt per kaart alle entries van voor cutoff in één snapshot en verwijdert die entries en de oudere snapshots.
+    Een kaart die voor cutoff verwijderd is en daarna niet meer gewijzigd verdwijnt helemaal.
+    Geeft het aantal verwijderde entries terug.
+     */
+    public int compact(Instant cutoff) {
+        List<Object[]> folds = jdbcTemplate.query("SELECT cash_card_id, MAX(id) FROM cash_card_ledger WHERE created_at < ? GROUP BY cash_card_id",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2)}, Timestamp.from(cutoff));
+        int removed = 0;
+        for (Object[] fold : folds) {
+            Long id = (Long) fold[0];
+            long ledgerId = (Long) fold[1];
+            insertSnapshot(id, ledgerId);
+            removed += jdbcTemplate.update("DELETE FROM cash_card_ledger WHERE cash_card_id = ? AND id <= ?", id, ledgerId);
+            jdbcTemplate.update("DELETE FROM cash_card_snapshot WHERE cash_card_id = ? AND ledger_id < ?", id, ledgerId);
+            jdbcTemplate.update("""
+                            DELETE FROM cash_card_snapshot s WHERE s.cash_card_id = ? AND s.ledger_id = ? AND s.balance IS NULL
+                            AND NOT EXISTS (SELECT 1 FROM cash_card_ledger l WHERE l.cash_card_id = s.cash_card_id)
+                            """,
+                    id, ledgerId);
+        }
+        return removed;
+    }
+
+    // ledgerId moet een entry van deze kaart zijn; bestaat de snapshot al dan gebeurt er niets
+    private void insertSnapshot(Long id, long ledgerId) {
+        jdbcTemplate.update("""
+                        INSERT INTO cash_card_snapshot (cash_card_id, ledger_id, taken_at, balance)
+                        SELECT cash_card_id, id, created_at, ? FROM cash_card_ledger l WHERE l.id = ?
+                        AND NOT EXISTS (SELECT 1 FROM cash_card_snapshot s WHERE s.cash_card_id = l.cash_card_id AND s.ledger_id = l.id)
+                        """,
+                balance(id, ledgerId, null).balance().orElse(null), ledgerId);
+    }
+
+    /*
+    Laatste snapshot tot en met ledgerId (en at, als die er is) plus de entries daarna.
+    ledgerId van het resultaat is de laatst meegetelde entry of snapshot, -1 als er niets was.
+     */
+    private State balance(Long id, long ledgerId, Timestamp at) {
+        State snapshot = jdbcTemplate.query("""
+                                SELECT ledger_id, balance FROM cash_card_snapshot
+                                WHERE cash_card_id = ? AND ledger_id <= ? AND (CAST(? AS TIMESTAMP) IS NULL OR taken_at <= ?)
+                                ORDER BY ledger_id DESC LIMIT 1
+                                """,
+                        (rs, rowNum) -> new State(rs.getLong(1), Optional.ofNullable(rs.getObject(2, Long.class))),
+                        id, ledgerId, at, at)
+                .stream().findFirst().orElse(new State(-1, Optional.empty()));
+        State[] state = {snapshot};
+        jdbcTemplate.query("""
+                        SELECT id, amount, deleted FROM cash_card_ledger
+                        WHERE cash_card_id = ? AND id > ? AND id <= ? AND (CAST(? AS TIMESTAMP) IS NULL OR created_at <= ?)
+                        ORDER BY id
+                        """,
+                rs -> {
+                    Optional<Long> balance = rs.getBoolean(3)
+                            ? Optional.empty()
+                            : Optional.of(state[0].balance().orElse(0L) + rs.getLong(2));
+                    state[0] = new State(rs.getLong(1), balance);
+                },
+                id, snapshot.ledgerId(), ledgerId, at, at);
+        return state[0];
+    }
+
+    private record State(long ledgerId, Optional<Long> balance) {
+    }
+}
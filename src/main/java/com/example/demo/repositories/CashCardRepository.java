@@ -1,16 +1,118 @@
 package com.example.demo.repositories;
 
 import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardCursor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 /*
 PagingAndSortingRepository<CashCard, Long> maakt paging en sorting mogelijk
  */
 
 public interface CashCardRepository extends CrudRepository<CashCard, Long>, PagingAndSortingRepository<CashCard, Long> {
+
+    /*
+    findById en findByIdAndOwner lezen via de cache (zie CashCardCaches), save en deleteById evicten, binnen een
+    transactie pas na de commit (zie CacheConfiguration).
+    De loads zijn sync, net als in JdbcCashCardVersionRepository: de query draait binnen Caffeine's compute, dus een
+    evict na de commit wacht tot een load die nog de oude rij las klaar is en verwijdert die dan alsnog. Zonder sync
+    komt de put van zo'n load pas na de evict en blijft de oude kaart tot de TTL staan.
+    Sync kent geen unless, dus een niet gevonden kaart wordt ook (als null) gecachet. Daarom evict save op het id van
+    het resultaat, ook bij een nieuwe kaart, en evicten de inserts buiten de repository om (batch, write-behind) hun
+    nieuwe ids zelf.
+    deleteById kent de owner niet, dus daar gaat de hele BY_ID_AND_OWNER cache leeg.
+     */
+    @Override
+    @Cacheable(cacheNames = CashCardCaches.BY_ID, key = "#p0", sync = true)
+    Optional<CashCard> findById(Long id);
+
+    @Cacheable(cacheNames = CashCardCaches.BY_ID_AND_OWNER, key = "#p0 + ':' + #p1", sync = true)
     CashCard findByIdAndOwner(Long id, String owner);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CashCardCaches.BY_ID, key = "#result.id"),
+            @CacheEvict(cacheNames = CashCardCaches.BY_ID_AND_OWNER, key = "#result.id + ':' + #result.owner")
+    })
+    <S extends CashCard> S save(S cashCard);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CashCardCaches.BY_ID, key = "#p0"),
+            @CacheEvict(cacheNames = CashCardCaches.BY_ID_AND_OWNER, allEntries = true)
+    })
+    void deleteById(Long id);
+
     Page<CashCard> findByOwner(String owner, PageRequest amount);
+
+    /*
+    Leest de rij buiten de cache om en lockt hem tot het einde van de transactie.
+    Voor schrijfacties die de oude waarde nodig hebben, zie CashCardService.
+     */
+    @Query("SELECT * FROM cash_card WHERE id = :id FOR UPDATE")
+    Optional<CashCard> findByIdForUpdate(Long id);
+
+    /*
+    Streamt alle cash cards over een open JDBC cursor in plaats van alles in een List te laden.
+    Hoeveel rijen de driver per round-trip ophaalt wordt bepaald door spring.jdbc.template.fetch-size.
+    De aanroeper moet de Stream sluiten (try-with-resources), anders blijft de connectie open.
+     */
+    @Query("SELECT * FROM cash_card ORDER BY id")
+    Stream<CashCard> streamAll();
+
+    /*
+    Keyset (seek) paginering: geen OFFSET en geen COUNT query, alleen "geef de volgende limit rijen na deze sleutel".
+    Elke query loopt langs de primary key of de (amount, id) index uit schema.sql, dus pagina N kost evenveel als pagina 1.
+    De losse "amount >= :amount" voorwaarde is er zodat de database de index als range scan kan gebruiken; met alleen
+    de OR erin doet H2 een full table scan.
+    Gebruik findPage(cursor, limit) in plaats van deze methodes direct aan te roepen.
+     */
+    default List<CashCard> findPage(CashCardCursor cursor, int limit) {
+        if (cursor.property().equals("amount")) {
+            if (cursor.isStart()) {
+                return cursor.descending() ? findFirstByAmountDesc(limit) : findFirstByAmountAsc(limit);
+            }
+            return cursor.descending()
+                    ? findNextByAmountDesc(cursor.amount(), cursor.id(), limit)
+                    : findNextByAmountAsc(cursor.amount(), cursor.id(), limit);
+        }
+        if (cursor.isStart()) {
+            return cursor.descending() ? findFirstByIdDesc(limit) : findFirstByIdAsc(limit);
+        }
+        return cursor.descending() ? findNextByIdDesc(cursor.id(), limit) : findNextByIdAsc(cursor.id(), limit);
+    }
+
+    @Query("SELECT * FROM cash_card ORDER BY amount ASC, id ASC LIMIT :limit")
+    List<CashCard> findFirstByAmountAsc(int limit);
+
+    @Query("SELECT * FROM cash_card ORDER BY amount DESC, id DESC LIMIT :limit")
+    List<CashCard> findFirstByAmountDesc(int limit);
+
+    @Query("SELECT * FROM cash_card WHERE amount >= :amount AND (amount > :amount OR id > :id) ORDER BY amount ASC, id ASC LIMIT :limit")
+    List<CashCard> findNextByAmountAsc(long amount, Long id, int limit);
+
+    @Query("SELECT * FROM cash_card WHERE amount <= :amount AND (amount < :amount OR id < :id) ORDER BY amount DESC, id DESC LIMIT :limit")
+    List<CashCard> findNextByAmountDesc(long amount, Long id, int limit);
+
+    @Query("SELECT * FROM cash_card ORDER BY id ASC LIMIT :limit")
+    List<CashCard> findFirstByIdAsc(int limit);
+
+    @Query("SELECT * FROM cash_card ORDER BY id DESC LIMIT :limit")
+    List<CashCard> findFirstByIdDesc(int limit);
+
+    @Query("SELECT * FROM cash_card WHERE id > :id ORDER BY id ASC LIMIT :limit")
+    List<CashCard> findNextByIdAsc(Long id, int limit);
+
+    @Query("SELECT * FROM cash_card WHERE id < :id ORDER BY id DESC LIMIT :limit")
+    List<CashCard> findNextByIdDesc(Long id, int limit);
 }
@@ -0,0 +1,16 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCardSummary;
+
+import java.util.Optional;
+
+/*
+Per owner het aantal cash cards en de som, het minimum en het maximum van amount, voor /cashcards/owners/{owner}/summary.
+
+Er zijn twee implementaties, net als voor CashCardRepository: JdbcCashCardSummaryRepository (cashcard.storage=jdbc)
+houdt een tabel bij, InMemoryCashCardRepository (cashcard.storage=memory) leest het uit de owner indexen.
+ */
+public interface CashCardSummaryRepository {
+
+    Optional<CashCardSummary> findByOwner(String owner);
+}
@@ -0,0 +1,92 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardTransaction;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+SQL voor CashCardTransactionService. Moet binnen een transactie aangeroepen worden.
+
+lock leest en lockt de kaart als eerste stap van een boeking, vóór de Idempotency-Keys gelezen worden. Een tweede
+boeking op dezelfde kaart (een andere lane of een andere instantie) wacht dan tot de eerste gecommit is en ziet daarna
+ook diens sleutels, in plaats van dezelfde sleutel nog een keer te inserten.
+
+adjust past het saldo aan met één conditionele UPDATE (amount = amount + ?) in plaats van lezen, optellen en save:
+de database doet de optelling onder de row lock, dus gelijktijdige boekingen kunnen elkaar niet overschrijven.
+Een afboeking die het saldo negatief zou maken wordt door de UPDATE zelf geweigerd.
+
+cash_card_transaction bewaart per (kaart, Idempotency-Key) het resultaat van de boeking, zodat een retry met dezelfde
+sleutel hetzelfde antwoord krijgt in plaats van nog een keer geboekt te worden.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardTransactionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<CashCard> rowMapper = new DataClassRowMapper<>(CashCard.class);
+
+    public CashCardTransactionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+    Leest de kaart met een row lock tot de commit, of empty als de kaart niet bestaat.
+     */
+    public Optional<CashCard> lock(Long id) {
+        return jdbcTemplate.query("SELECT * FROM cash_card WHERE id = ? FOR UPDATE", rowMapper, id).stream().findFirst();
+    }
+
+    /*
+    Telt delta op bij het saldo. False als de kaart niet bestaat, of als delta negatief is en het saldo daardoor
+    onder nul zou komen; dan is er niets gewijzigd.
+     */
+    public boolean adjust(Long id, long delta) {
+        return jdbcTemplate.update("UPDATE cash_card SET amount = amount + ? WHERE id = ? AND (? >= 0 OR amount + ? >= 0)",
+                delta, id, delta, delta) > 0;
+    }
+
+    public Map<String, CashCardTransaction> findByIdempotencyKeys(Long id, Collection<String> idempotencyKeys) {
+        if (idempotencyKeys.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, CashCardTransaction> transactions = new HashMap<>();
+        jdbcTemplate.query("SELECT idempotency_key, amount, balance FROM cash_card_transaction WHERE cash_card_id = ? AND idempotency_key IN ("
+                        + String.join(",", Collections.nCopies(idempotencyKeys.size(), "?")) + ")",
+                rs -> {
+                    transactions.put(rs.getString(1), new CashCardTransaction(id, rs.getLong(2), rs.getLong(3)));
+                },
+                concat(id, idempotencyKeys));
+        return transactions;
+    }
+
+    public void saveAll(Map<String, CashCardTransaction> transactionsByIdempotencyKey) {
+        if (transactionsByIdempotencyKey.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cash_card_transaction (cash_card_id, idempotency_key, amount, balance) VALUES (?, ?, ?, ?)",
+                transactionsByIdempotencyKey.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue().cashCardId(), entry.getKey(),
+                                entry.getValue().amount(), entry.getValue().balance()})
+                        .toList());
+    }
+
+    private static Object[] concat(Long id, Collection<String> idempotencyKeys) {
+        Object[] arguments = new Object[idempotencyKeys.size() + 1];
+        arguments[0] = id;
+        int i = 1;
+        for (String idempotencyKey : idempotencyKeys) {
+            arguments[i++] = idempotencyKey;
+        }
+        return arguments;
+    }
+}
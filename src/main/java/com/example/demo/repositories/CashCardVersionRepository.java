@@ -0,0 +1,30 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCardVersion;
+
+import java.util.Optional;
+
+/*
+Versie per cash card, voor ETag/Last-Modified en If-Match op /cashcards.
+
+Elke CashCardsChangedEvent geeft de gewijzigde kaarten een nieuwe, grotere versie. De versie van de lijst is de som
+van alle versies, ook die van verwijderde kaarten, en wordt dus bij elke wijziging groter.
+Implementaties: JdbcCashCardVersionRepository (cashcard.storage=jdbc) en InMemoryCashCardVersionRepository
+(cashcard.storage=memory).
+ */
+public interface CashCardVersionRepository {
+
+    String ALL = "all";
+
+    /*
+    Mag uit een cache komen.
+     */
+    Optional<CashCardVersion> findById(Long id);
+
+    /*
+    Buiten een cache om. Alleen betrouwbaar als de kaart gelockt is (findByIdForUpdate), zie CashCardService.update.
+     */
+    Optional<CashCardVersion> findCurrent(Long id);
+
+    CashCardVersion findAll();
+}
@@ -0,0 +1,327 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardSummary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/*
+Opt-in: cashcard.storage=memory
+
+CashCardRepository zonder database: de kaarten staan in een InMemoryCashCardStore (primitieve kolommen, een long
+hash map op id, gesorteerde indexen op amount en per owner, lock striping). Met cashcard.storage=memory is er geen
+DataSource en geen Spring Data JDBC repository (zie StorageEnvironmentPostProcessor), dus alles wat een
+CashCardRepository injecteert krijgt deze. De cache annotaties van CashCardRepository gelden hier ook.
+
+Dit is ook de CashCardSummaryRepository: de owner indexen houden per stripe het totaal bij, dus een summary kost
+O(stripes) en hoeft niet apart bijgehouden te worden. De versies staan in InMemoryCashCardVersionRepository.
+
+Begin en einde:
+- staat cashcard.storage.memory.snapshot op een bestand dat bestaat, dan komen de kaarten daaruit, anders is hij leeg
+- bij het afsluiten worden de kaarten naar het snapshot bestand geschreven, als dat is ingesteld
+
+Transacties (zie InMemoryStorageConfiguration): een wijziging is direct zichtbaar. Binnen een Spring transactie wordt
+hij bij een rollback teruggedraaid, en houdt findByIdForUpdate het update lock van de stripe vast tot de transactie
+klaar is (maximaal cashcard.storage.memory.lock-timeout wachten, daarna CannotAcquireLockException).
+
+De batch, transactie, ledger en reactive endpoints werken alleen met cashcard.storage=jdbc en bestaan hier niet;
+write-behind kan er niet mee gecombineerd worden.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "memory")
+public class InMemoryCashCardRepository implements CashCardRepository, CashCardSummaryRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCashCardRepository.class);
+
+    private final InMemoryCashCardStore store;
+    private final Path snapshot;
+    private final long lockTimeoutNanos;
+
+    public InMemoryCashCardRepository(@Value("${cashcard.storage.memory.stripes:16}") int stripes,
+                                      @Value("${cashcard.storage.memory.snapshot:}") String snapshot,
+                                      @Value("${cashcard.storage.memory.lock-timeout:PT10S}") Duration lockTimeout) throws IOException {
+        this.store = new InMemoryCashCardStore(stripes);
+        this.snapshot = snapshot.isBlank() ? null : Path.of(snapshot);
+        this.lockTimeoutNanos = lockTimeout.toNanos();
+        if (this.snapshot != null && Files.exists(this.snapshot)) {
+            store.readSnapshot(this.snapshot);
+            log.info("{} cash cards uit snapshot {} geladen", store.count(), this.snapshot);
+        }
+    }
+
+    @PreDestroy
+    void writeSnapshot() throws IOException {
+        if (snapshot != null) {
+            store.writeSnapshot(snapshot);
+            log.info("{} cash cards naar snapshot {} geschreven", store.count(), snapshot);
+        }
+    }
+
+    @Override
+    public Optional<CashCard> findById(Long id) {
+        return store.get(id);
+    }
+
+    @Override
+    public CashCard findByIdAndOwner(Long id, String owner) {
+        return store.get(id).filter(cashCard -> cashCard.owner() != null && cashCard.owner().equals(owner)).orElse(null);
+    }
+
+    @Override
+    public Optional<CashCard> findByIdForUpdate(Long id) {
+        store.lockForUpdate(id, lockTimeoutNanos, TimeUnit.NANOSECONDS);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    store.unlockForUpdate(id);
+                }
+            });
+        } else {
+            store.unlockForUpdate(id);
+        }
+        return store.get(id);
+    }
+
+    @Override
+    public <S extends CashCard> S save(S cashCard) {
+        if (cashCard.id() == null) {
+            @SuppressWarnings("unchecked")
+            S saved = (S) new CashCard(store.nextId(), cashCard.amount(), cashCard.owner());
+            store.put(saved);
+            onRollback(() -> store.remove(saved.id()));
+            return saved;
+        }
+        CashCard previous = store.put(cashCard);
+        onRollback(() -> {
+            if (previous == null) {
+                store.remove(cashCard.id());
+            } else {
+                store.put(previous);
+            }
+        });
+        return cashCard;
+    }
+
+    @Override
+    public <S extends CashCard> Iterable<S> saveAll(Iterable<S> cashCards) {
+        List<S> saved = new ArrayList<>();
+        cashCards.forEach(cashCard -> saved.add(save(cashCard)));
+        return saved;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return store.get(id).isPresent();
+    }
+
+    @Override
+    public Iterable<CashCard> findAll() {
+        return store.all();
+    }
+
+    @Override
+    public Iterable<CashCard> findAllById(Iterable<Long> ids) {
+        List<CashCard> cashCards = new ArrayList<>();
+        ids.forEach(id -> store.get(id).ifPresent(cashCards::add));
+        return cashCards;
+    }
+
+    @Override
+    public long count() {
+        return store.count();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        CashCard previous = store.remove(id);
+        if (previous != null) {
+            onRollback(() -> store.put(previous));
+        }
+    }
+
+    @Override
+    public void delete(CashCard cashCard) {
+        deleteById(cashCard.id());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends CashCard> cashCards) {
+        cashCards.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        List<CashCard> previous = store.all();
+        store.clear();
+        onRollback(() -> previous.forEach(store::put));
+    }
+
+    @Override
+    public Iterable<CashCard> findAll(Sort sort) {
+        return page(sort, 0, Integer.MAX_VALUE, null);
+    }
+
+    @Override
+    public Page<CashCard> findAll(Pageable pageable) {
+        return toPage(pageable, null, store::count);
+    }
+
+    @Override
+    public Page<CashCard> findByOwner(String owner, PageRequest pageRequest) {
+        return toPage(pageRequest, owner, () -> store.countByOwner(owner));
+    }
+
+    @Override
+    public Optional<CashCardSummary> findByOwner(String owner) {
+        return store.summaryByOwner(owner);
+    }
+
+    @Override
+    public Stream<CashCard> streamAll() {
+        return store.all().stream();
+    }
+
+    @Override
+    public List<CashCard> findFirstByAmountAsc(int limit) {
+        return store.page(true, false, 0, limit);
+    }
+
+    @Override
+    public List<CashCard> findFirstByAmountDesc(int limit) {
+        return store.page(true, true, 0, limit);
+    }
+
+    @Override
+    public List<CashCard> findNextByAmountAsc(long amount, Long id, int limit) {
+        return store.pageAfter(true, false, amount, id, limit);
+    }
+
+    @Override
+    public List<CashCard> findNextByAmountDesc(long amount, Long id, int limit) {
+        return store.pageAfter(true, true, amount, id, limit);
+    }
+
+    @Override
+    public List<CashCard> findFirstByIdAsc(int limit) {
+        return store.page(false, false, 0, limit);
+    }
+
+    @Override
+    public List<CashCard> findFirstByIdDesc(int limit) {
+        return store.page(false, true, 0, limit);
+    }
+
+    @Override
+    public List<CashCard> findNextByIdAsc(Long id, int limit) {
+        return store.pageAfter(false, false, 0, id, limit);
+    }
+
+    @Override
+    public List<CashCard> findNextByIdDesc(Long id, int limit) {
+        return store.pageAfter(false, true, 0, id, limit);
+    }
+
+    private Page<CashCard> toPage(Pageable pageable, String owner, LongSupplier total) {
+        if (pageable.isUnpaged()) {
+            List<CashCard> cashCards = page(pageable.getSort(), 0, Integer.MAX_VALUE, owner);
+            return new PageImpl<>(cashCards, pageable, cashCards.size());
+        }
+        List<CashCard> cashCards = page(pageable.getSort(), pageable.getOffset(), pageable.getPageSize(), owner);
+        return new PageImpl<>(cashCards, pageable, total.getAsLong());
+    }
+
+    /*
+    Sorteren op één property, amount of id, gaat via de indexen (met id als tiebreaker, net als de keyset queries).
+    Andere sorteringen sorteren alle kaarten (of alle kaarten van de owner) in het geheugen.
+     */
+    private List<CashCard> page(Sort sort, long offset, int limit, String owner) {
+        List<Sort.Order> orders = sort.toList();
+        Sort.Order order = orders.isEmpty() ? Sort.Order.asc("id") : orders.get(0);
+        boolean indexed = orders.size() <= 1 && (order.getProperty().equals("amount") || order.getProperty().equals("id"));
+        if (indexed) {
+            boolean byAmount = order.getProperty().equals("amount");
+            return owner == null
+                    ? store.page(byAmount, order.isDescending(), offset, limit)
+                    : store.pageByOwner(owner, byAmount, order.isDescending(), offset, limit);
+        }
+        List<CashCard> cashCards = owner == null ? store.all() : store.pageByOwner(owner, false, false, 0, Integer.MAX_VALUE);
+        cashCards.sort(comparator(sort));
+        int from = (int) Math.min(offset, cashCards.size());
+        return new ArrayList<>(cashCards.subList(from, (int) Math.min(cashCards.size(), from + (long) limit)));
+    }
+
+    private static Comparator<CashCard> comparator(Sort sort) {
+        Comparator<CashCard> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<CashCard> next = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(CashCard::id);
+                case "amount" -> Comparator.comparingLong(CashCard::amount);
+                case "owner" -> Comparator.comparing(CashCard::owner, Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> throw new IllegalArgumentException("Cannot sort cash cards on " + order.getProperty());
+            };
+            next = order.isDescending() ? next.reversed() : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? Comparator.comparing(CashCard::id) : comparator.thenComparing(CashCard::id);
+    }
+
+    /*
+    Eén undo log per transactie, die bij een rollback in omgekeerde volgorde wordt afgespeeld.
+     */
+    private void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        UndoLog undoLog = (UndoLog) TransactionSynchronizationManager.getResource(store);
+        if (undoLog == null) {
+            undoLog = new UndoLog();
+            TransactionSynchronizationManager.bindResource(store, undoLog);
+            TransactionSynchronizationManager.registerSynchronization(undoLog);
+        }
+        undoLog.undo.push(undo);
+    }
+
+    private final class UndoLog implements TransactionSynchronization {
+
+        final Deque<Runnable> undo = new ArrayDeque<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(store);
+            if (status == STATUS_ROLLED_BACK) {
+                undo.forEach(Runnable::run);
+            }
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardSummary;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+De opslag achter InMemoryCashCardRepository: cash cards in primitieve kolommen in plaats van in objecten.
+
+De kaarten zijn op id over een vast aantal stripes verdeeld (een macht van twee). Elke stripe heeft:
+- kolommen long[] ids, long[] amounts en int[] owners (de owner als code uit een gedeelde woordenlijst);
+  vrijgekomen rijen worden hergebruikt
+- een LongIntHashMap van id naar rij
+- gesorteerde rij-indexen op id, op (amount, id) en per owner op (amount, id)
+- een ReentrantReadWriteLock; een schrijfactie lockt alleen zijn eigen stripe
+
+Een lookup op id leest één stripe. Een gesorteerde pagina leest alle stripes (alle read locks, in vaste volgorde, dus
+een consistente stand) en voegt hun indexen samen: pagina met offset o en grootte n kost O((o + n) * stripes), hoe
+groot de tabel ook is. Keyset paginering zoekt per stripe met een binary search de startpositie op.
+
+Bedragen zijn centen (long), dus er is geen double kolom nodig.
+
+lockForUpdate is het equivalent van SELECT ... FOR UPDATE: een lock per stripe, die de aanroeper tot het einde van
+zijn transactie vasthoudt (zie InMemoryCashCardRepository.findByIdForUpdate).
+ */
+final class InMemoryCashCardStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x43435331; // "CCS1"
+    private static final int NO_OWNER = 0;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private final Map<String, Integer> ownerCodes = new HashMap<>();
+    private volatile String[] ownerNames = {null};
+
+    InMemoryCashCardStore(int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[stripeCount <= 1 ? 1 : count];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = stripes.length - 1;
+    }
+
+    long nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    Optional<CashCard> get(long id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.readLock().lock();
+        try {
+            int row = stripe.rowsById.get(id);
+            return row == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(stripe.card(row));
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /*
+    Voegt de kaart toe of overschrijft hem. Geeft de vorige versie, of null als het id nieuw is.
+     */
+    CashCard put(CashCard cashCard) {
+        long id = cashCard.id();
+        nextId.accumulateAndGet(id + 1, Math::max);
+        int owner = ownerCode(cashCard.owner());
+        Stripe stripe = stripe(id);
+        stripe.lock.writeLock().lock();
+        try {
+            return stripe.put(id, cashCard.amount(), owner);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /*
+    Geeft de verwijderde kaart, of null als hij er niet was.
+     */
+    CashCard remove(long id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.writeLock().lock();
+        try {
+            return stripe.remove(id);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lockAll(true);
+        try {
+            for (Stripe stripe : stripes) {
+                stripe.clear();
+            }
+        } finally {
+            unlockAll(true);
+        }
+    }
+
+    long count() {
+        lockAll(false);
+        try {
+            long count = 0;
+            for (Stripe stripe : stripes) {
+                count += stripe.rowsById.size();
+            }
+            return count;
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    long countByOwner(String owner) {
+        Integer code = knownOwnerCode(owner);
+        if (code == null) {
+            return 0;
+        }
+        lockAll(false);
+        try {
+            long count = 0;
+            for (Stripe stripe : stripes) {
+                RowIndex index = stripe.ownerIndex(code, false);
+                count += index == null ? 0 : index.size;
+            }
+            return count;
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    /*
+    Aantal, som, minimum en maximum uit de owner indexen: per stripe de grootte, het bijgehouden totaal en de eerste
+    en laatste rij. Kost O(stripes), hoeveel kaarten de owner ook heeft.
+     */
+    Optional<CashCardSummary> summaryByOwner(String owner) {
+        Integer code = knownOwnerCode(owner);
+        if (code == null) {
+            return Optional.empty();
+        }
+        lockAll(false);
+        try {
+            long count = 0;
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (Stripe stripe : stripes) {
+                RowIndex index = stripe.ownerIndex(code, false);
+                if (index == null || index.size == 0) {
+                    continue;
+                }
+                count += index.size;
+                sum = Math.addExact(sum, index.total);
+                min = Math.min(min, stripe.amounts[index.rows[0]]);
+                max = Math.max(max, stripe.amounts[index.rows[index.size - 1]]);
+            }
+            return count == 0 ? Optional.empty() : Optional.of(new CashCardSummary(owner, count, sum, min, max));
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    /*
+    Alle kaarten op id, als lijst: wie een consistente stand wil, krijgt een kopie.
+     */
+    List<CashCard> all() {
+        return page(false, false, 0, Integer.MAX_VALUE);
+    }
+
+    List<CashCard> page(boolean byAmount, boolean descending, long offset, int limit) {
+        lockAll(false);
+        try {
+            RowIndex[] indexes = new RowIndex[stripes.length];
+            for (int i = 0; i < stripes.length; i++) {
+                indexes[i] = byAmount ? stripes[i].byAmount : stripes[i].byId;
+            }
+            return merge(indexes, byAmount, descending, null, offset, limit);
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    /*
+    Pagina van één owner via zijn (amount, id) index. Gesorteerd op id worden alleen de kaarten van die owner
+    gesorteerd, niet de hele tabel.
+     */
+    List<CashCard> pageByOwner(String owner, boolean byAmount, boolean descending, long offset, int limit) {
+        Integer code = knownOwnerCode(owner);
+        if (code == null) {
+            return List.of();
+        }
+        lockAll(false);
+        try {
+            RowIndex[] indexes = new RowIndex[stripes.length];
+            for (int i = 0; i < stripes.length; i++) {
+                indexes[i] = stripes[i].ownerIndex(code, false);
+            }
+            if (byAmount) {
+                return merge(indexes, true, descending, null, offset, limit);
+            }
+            List<CashCard> cashCards = merge(indexes, true, false, null, 0, Integer.MAX_VALUE);
+            Comparator<CashCard> order = Comparator.comparing(CashCard::id);
+            cashCards.sort(descending ? order.reversed() : order);
+            return slice(cashCards, offset, limit);
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    /*
+    Keyset: de eerste limit kaarten na (amount, id) in de gegeven volgorde. Bij sorteren op id telt amount niet mee.
+     */
+    List<CashCard> pageAfter(boolean byAmount, boolean descending, long amount, long id, int limit) {
+        lockAll(false);
+        try {
+            RowIndex[] indexes = new RowIndex[stripes.length];
+            for (int i = 0; i < stripes.length; i++) {
+                indexes[i] = byAmount ? stripes[i].byAmount : stripes[i].byId;
+            }
+            return merge(indexes, byAmount, descending, new long[]{amount, id}, 0, limit);
+        } finally {
+            unlockAll(false);
+        }
+    }
+
+    void lockForUpdate(long id, long timeout, TimeUnit unit) {
+        try {
+            if (!stripe(id).updateLock.tryLock(timeout, unit)) {
+                throw new CannotAcquireLockException("Timeout waiting for update lock on cash card " + id);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted waiting for update lock on cash card " + id, e);
+        }
+    }
+
+    void unlockForUpdate(long id) {
+        stripe(id).updateLock.unlock();
+    }
+
+    /*
+    Schrijft alle kaarten naar een tijdelijk bestand naast file en zet dat daarna in één keer op zijn plek, zodat een
+    crash halverwege nooit een half snapshot achterlaat.
+     */
+    void writeSnapshot(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            List<CashCard> cashCards = all();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(nextId.get());
+                out.writeInt(cashCards.size());
+                for (CashCard cashCard : cashCards) {
+                    out.writeLong(cashCard.id());
+                    out.writeLong(cashCard.amount());
+                    out.writeBoolean(cashCard.owner() != null);
+                    if (cashCard.owner() != null) {
+                        out.writeUTF(cashCard.owner());
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    void readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a cash card snapshot");
+            }
+            long snapshotNextId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                long amount = in.readLong();
+                String owner = in.readBoolean() ? in.readUTF() : null;
+                put(new CashCard(id, amount, owner));
+            }
+            nextId.accumulateAndGet(snapshotNextId, Math::max);
+        }
+    }
+
+    private List<CashCard> merge(RowIndex[] indexes, boolean byAmount, boolean descending, long[] after,
+                                 long offset, int limit) {
+        int[] positions = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            RowIndex index = indexes[i];
+            if (index == null) {
+                positions[i] = -1;
+            } else if (after == null) {
+                positions[i] = descending ? index.size - 1 : 0;
+            } else {
+                // eerste positie na de sleutel, of bij aflopend de laatste ervoor
+                positions[i] = descending
+                        ? index.firstAtLeast(after[0], after[1]) - 1
+                        : index.firstAbove(after[0], after[1]);
+            }
+        }
+        List<CashCard> result = new ArrayList<>(Math.min(limit, 1024));
+        long skipped = 0;
+        while (result.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < indexes.length; i++) {
+                if (positions[i] < 0 || positions[i] >= (indexes[i] == null ? 0 : indexes[i].size)) {
+                    continue;
+                }
+                if (best < 0) {
+                    best = i;
+                    continue;
+                }
+                int compare = compare(indexes[i], positions[i], indexes[best], positions[best], byAmount);
+                if (descending ? compare > 0 : compare < 0) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            RowIndex index = indexes[best];
+            int row = index.rows[positions[best]];
+            positions[best] += descending ? -1 : 1;
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(index.stripe.card(row));
+            }
+        }
+        return result;
+    }
+
+    private static int compare(RowIndex left, int leftPosition, RowIndex right, int rightPosition, boolean byAmount) {
+        int leftRow = left.rows[leftPosition];
+        int rightRow = right.rows[rightPosition];
+        if (byAmount) {
+            int compare = Long.compare(left.stripe.amounts[leftRow], right.stripe.amounts[rightRow]);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return Long.compare(left.stripe.ids[leftRow], right.stripe.ids[rightRow]);
+    }
+
+    private static List<CashCard> slice(List<CashCard> cashCards, long offset, int limit) {
+        int from = (int) Math.min(offset, cashCards.size());
+        return new ArrayList<>(cashCards.subList(from, (int) Math.min(cashCards.size(), from + (long) limit)));
+    }
+
+    private Stripe stripe(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 32) & stripeMask];
+    }
+
+    private void lockAll(boolean write) {
+        for (Stripe stripe : stripes) {
+            (write ? stripe.lock.writeLock() : stripe.lock.readLock()).lock();
+        }
+    }
+
+    private void unlockAll(boolean write) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            (write ? stripes[i].lock.writeLock() : stripes[i].lock.readLock()).unlock();
+        }
+    }
+
+    private Integer knownOwnerCode(String owner) {
+        if (owner == null) {
+            return NO_OWNER;
+        }
+        synchronized (ownerCodes) {
+            return ownerCodes.get(owner);
+        }
+    }
+
+    private int ownerCode(String owner) {
+        if (owner == null) {
+            return NO_OWNER;
+        }
+        synchronized (ownerCodes) {
+            Integer code = ownerCodes.get(owner);
+            if (code == null) {
+                String[] names = Arrays.copyOf(ownerNames, ownerNames.length + 1);
+                code = names.length - 1;
+                names[code] = owner;
+                ownerNames = names;
+                ownerCodes.put(owner, code);
+            }
+            return code;
+        }
+    }
+
+    private final class Stripe {
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final ReentrantLock updateLock = new ReentrantLock();
+        final LongIntHashMap rowsById = new LongIntHashMap(64);
+        final RowIndex byId = new RowIndex(this, false);
+        final RowIndex byAmount = new RowIndex(this, true);
+        RowIndex[] byOwner = new RowIndex[0];
+
+        long[] ids = new long[64];
+        long[] amounts = new long[64];
+        int[] owners = new int[64];
+        int rowCount;
+        int[] freeRows = new int[16];
+        int freeCount;
+
+        CashCard card(int row) {
+            return new CashCard(ids[row], amounts[row], ownerNames[owners[row]]);
+        }
+
+        CashCard put(long id, long amount, int owner) {
+            int row = rowsById.get(id);
+            if (row != LongIntHashMap.MISSING) {
+                CashCard previous = card(row);
+                byAmount.remove(row);
+                ownerIndex(owners[row], false).remove(row);
+                amounts[row] = amount;
+                owners[row] = owner;
+                byAmount.insert(row);
+                ownerIndex(owner, true).insert(row);
+                return previous;
+            }
+            row = allocate();
+            ids[row] = id;
+            amounts[row] = amount;
+            owners[row] = owner;
+            rowsById.put(id, row);
+            byId.insert(row);
+            byAmount.insert(row);
+            ownerIndex(owner, true).insert(row);
+            return null;
+        }
+
+        CashCard remove(long id) {
+            int row = rowsById.get(id);
+            if (row == LongIntHashMap.MISSING) {
+                return null;
+            }
+            CashCard previous = card(row);
+            byId.remove(row);
+            byAmount.remove(row);
+            ownerIndex(owners[row], false).remove(row);
+            rowsById.remove(id);
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = row;
+            return previous;
+        }
+
+        void clear() {
+            rowsById.clear();
+            byId.size = 0;
+            byId.total = 0;
+            byAmount.size = 0;
+            byAmount.total = 0;
+            byOwner = new RowIndex[0];
+            rowCount = 0;
+            freeCount = 0;
+        }
+
+        RowIndex ownerIndex(int owner, boolean create) {
+            if (owner >= byOwner.length) {
+                if (!create) {
+                    return null;
+                }
+                byOwner = Arrays.copyOf(byOwner, Math.max(owner + 1, byOwner.length * 2));
+            }
+            if (byOwner[owner] == null && create) {
+                byOwner[owner] = new RowIndex(this, true);
+            }
+            return byOwner[owner];
+        }
+
+        private int allocate() {
+            if (freeCount > 0) {
+                return freeRows[--freeCount];
+            }
+            if (rowCount == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                owners = Arrays.copyOf(owners, capacity);
+            }
+            return rowCount++;
+        }
+    }
+
+    /*
+    Rijnummers van één stripe, gesorteerd op id of op (amount, id). De sleutels zijn uniek (het id zit erin), dus
+    insert en remove vinden hun plek met een binary search; daarna schuift arraycopy de rest op. Nieuwe ids zijn
+    oplopend, dus in de id index is dat meestal een append. total is de som van de amounts, voor summaryByOwner.
+     */
+    private static final class RowIndex {
+
+        final Stripe stripe;
+        final boolean byAmount;
+        int[] rows = new int[16];
+        int size;
+        long total;
+
+        RowIndex(Stripe stripe, boolean byAmount) {
+            this.stripe = stripe;
+            this.byAmount = byAmount;
+        }
+
+        void insert(int row) {
+            int position = firstAtLeast(stripe.amounts[row], stripe.ids[row]);
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            System.arraycopy(rows, position, rows, position + 1, size - position);
+            rows[position] = row;
+            size++;
+            total += stripe.amounts[row];
+        }
+
+        void remove(int row) {
+            int position = firstAtLeast(stripe.amounts[row], stripe.ids[row]);
+            System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+            size--;
+            total -= stripe.amounts[row];
+        }
+
+        int firstAtLeast(long amount, long id) {
+            return search(amount, id, false);
+        }
+
+        int firstAbove(long amount, long id) {
+            return search(amount, id, true);
+        }
+
+        private int search(long amount, long id, boolean strict) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int compare = compare(rows[middle], amount, id);
+                if (compare < 0 || strict && compare == 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int compare(int row, long amount, long id) {
+            if (byAmount) {
+                int compare = Long.compare(stripe.amounts[row], amount);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return Long.compare(stripe.ids[row], id);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardVersion;
+import com.example.demo.model.CashCardsChangedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+CashCardVersionRepository voor cashcard.storage=memory: de versies staan in een map, naast InMemoryCashCardRepository.
+
+Het snapshot bevat geen versies. Bij het starten krijgt elke kaart een nieuwe versie, en alle ETags beginnen met het
+tijdstip van de start, zodat een ETag van voor een herstart nooit per ongeluk matcht.
+De versies worden in onCashCardsChanged direct bijgewerkt, niet pas na de commit. Een rollback laat de kaart dus
+met een nieuwere versie achter; dat kost een client hooguit een 200 in plaats van een 304, of een onnodige 412.
+Een lookup is één map get, dus er is geen cache.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "memory")
+public class InMemoryCashCardVersionRepository implements CashCardVersionRepository {
+
+    private final String generation = Long.toString(System.currentTimeMillis());
+    private final Map<Long, Version> versions = new HashMap<>();
+    private long sequence;
+    private long sum;
+    private Instant lastModified = Instant.EPOCH;
+
+    public InMemoryCashCardVersionRepository(CashCardRepository cashCardRepository) {
+        Instant now = Instant.now();
+        for (CashCard cashCard : cashCardRepository.findAll()) {
+            put(cashCard.id(), now, false);
+        }
+    }
+
+    @Override
+    public Optional<CashCardVersion> findById(Long id) {
+        return findCurrent(id);
+    }
+
+    @Override
+    public synchronized Optional<CashCardVersion> findCurrent(Long id) {
+        Version version = versions.get(id);
+        if (version == null || version.deleted()) {
+            return Optional.empty();
+        }
+        return Optional.of(new CashCardVersion(eTag(version.version()), version.modifiedAt()));
+    }
+
+    @Override
+    public synchronized CashCardVersion findAll() {
+        return new CashCardVersion(eTag(sum), lastModified);
+    }
+
+    @EventListener
+    public synchronized void onCashCardsChanged(CashCardsChangedEvent event) {
+        Instant now = Instant.now();
+        for (CashCardChange change : event.changes()) {
+            put(change.after() == null ? change.before().id() : change.after().id(), now, change.after() == null);
+        }
+    }
+
+    private void put(Long id, Instant modifiedAt, boolean deleted) {
+        Version previous = versions.put(id, new Version(++sequence, modifiedAt, deleted));
+        sum += sequence - (previous == null ? 0 : previous.version());
+        lastModified = modifiedAt;
+    }
+
+    private String eTag(long version) {
+        return "\"" + generation + "." + version + "\"";
+    }
+
+    private record Version(long version, Instant modifiedAt, boolean deleted) {
+    }
+}
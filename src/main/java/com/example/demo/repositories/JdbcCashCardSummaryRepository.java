@@ -0,0 +1,104 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardSummary;
+import com.example.demo.model.CashCardsChangedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+CashCardSummaryRepository voor cashcard.storage=jdbc.
+
+Per owner het aantal cash cards en de som, het minimum en het maximum van amount, in cash_card_owner_summary.
+
+De tabel wordt niet berekend uit cash_card maar bij elke wijziging bijgewerkt (CashCardsChangedEvent), in dezelfde
+transactie als de wijziging zelf. Opvragen is daardoor één lookup op primary key, hoeveel kaarten een owner ook heeft.
+
+Toevoegen is altijd incrementeel (count + n, sum + s, LEAST/GREATEST). Bij verwijderen gaan count en sum omlaag;
+alleen als het minimum of maximum zelf verdwijnt wordt die opnieuw uit cash_card gehaald, via de (owner, amount) index.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcCashCardSummaryRepository implements CashCardSummaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcCashCardSummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<CashCardSummary> findByOwner(String owner) {
+        return jdbcTemplate.query("SELECT owner, card_count, total_amount, min_amount, max_amount FROM cash_card_owner_summary WHERE owner = ?",
+                (rs, rowNum) -> new CashCardSummary(rs.getString(1), rs.getLong(2),
+                        rs.getLong(3), rs.getLong(4), rs.getLong(5)),
+                owner).stream().findFirst();
+    }
+
+    @EventListener
+    public void onCashCardsChanged(CashCardsChangedEvent event) {
+        Map<String, Delta> removed = new HashMap<>();
+        Map<String, Delta> added = new HashMap<>();
+        for (CashCardChange change : event.changes()) {
+            if (change.before() != null) {
+                removed.computeIfAbsent(change.before().owner(), owner -> new Delta()).add(change.before().amount());
+            }
+            if (change.after() != null) {
+                added.computeIfAbsent(change.after().owner(), owner -> new Delta()).add(change.after().amount());
+            }
+        }
+        // eerst verwijderen: een herberekend minimum of maximum komt uit cash_card en bevat de nieuwe rijen al
+        removed.forEach(this::remove);
+        added.forEach(this::add);
+    }
+
+    private void add(String owner, Delta delta) {
+        jdbcTemplate.update("""
+                        MERGE INTO cash_card_owner_summary s
+                        USING (VALUES (CAST(? AS VARCHAR(256)), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+                            AS v (owner, card_count, total_amount, min_amount, max_amount)
+                        ON s.owner = v.owner
+                        WHEN MATCHED THEN UPDATE SET
+                            card_count = s.card_count + v.card_count,
+                            total_amount = s.total_amount + v.total_amount,
+                            min_amount = LEAST(s.min_amount, v.min_amount),
+                            max_amount = GREATEST(s.max_amount, v.max_amount)
+                        WHEN NOT MATCHED THEN INSERT (owner, card_count, total_amount, min_amount, max_amount)
+                            VALUES (v.owner, v.card_count, v.total_amount, v.min_amount, v.max_amount)
+                        """,
+                owner, delta.count, delta.sum, delta.min, delta.max);
+    }
+
+    private void remove(String owner, Delta delta) {
+        jdbcTemplate.update("UPDATE cash_card_owner_summary SET card_count = card_count - ?, total_amount = total_amount - ? WHERE owner = ?",
+                delta.count, delta.sum, owner);
+        jdbcTemplate.update("DELETE FROM cash_card_owner_summary WHERE owner = ? AND card_count <= 0", owner);
+        jdbcTemplate.update("""
+                        UPDATE cash_card_owner_summary SET
+                            min_amount = (SELECT MIN(amount) FROM cash_card WHERE owner = ?),
+                            max_amount = (SELECT MAX(amount) FROM cash_card WHERE owner = ?)
+                        WHERE owner = ? AND (min_amount >= ? OR max_amount <= ?)
+                        """,
+                owner, owner, owner, delta.min, delta.max);
+    }
+
+    private static final class Delta {
+        long count;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        void add(long amount) {
+            count++;
+            sum = Math.addExact(sum, amount);
+            min = Math.min(min, amount);
+            max = Math.max(max, amount);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardVersion;
+import com.example.demo.model.CashCardsChangedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/*
+CashCardVersionRepository voor cashcard.storage=jdbc: de versies staan in cash_card_version.
+
+Elke CashCardsChangedEvent geeft de gewijzigde kaarten een nieuwe versie uit cash_card_version_seq, in dezelfde
+transactie als de wijziging. De sequence waarde wordt pas opgehaald als de rij in cash_card al gelockt is, dus per
+kaart worden de versies in commit volgorde groter. Een verwijderde kaart houdt een rij met deleted = true.
+Let op: SYSTEM_RANGE (alle sequence waarden in één query) is H2. Op een andere database wordt dat bijvoorbeeld
+generate_series (PostgreSQL), of één NEXT VALUE FOR per kaart; de MERGE is standaard SQL.
+
+De ETag van de lijst is de som van alle versies, ook die van verwijderde kaarten. Elke wijziging vervangt een
+versie door een grotere of voegt er een toe, dus de som wordt bij elke commit groter, ook als transacties in een
+andere volgorde committen dan ze hun versie kregen. Een MAX zou een later committende, lagere versie missen.
+
+Beide staan in de VERSIONS cache (zie CashCardCaches), zodat een 304 geen query kost. Na de commit worden de
+gewijzigde kaarten en de lijst uit de cache gehaald. De loads zijn sync: de query draait binnen Caffeine's compute,
+dus een evict die tegelijk komt wacht tot een load die nog de oude versie las klaar is en verwijdert hem dan alsnog.
+Zonder sync zou Spring pas na de query een losse put doen, en die kan ná de evict komen. Een kaart zonder versie
+wordt zo ook (als null) gecachet; de eerste versie komt via onCashCardsChanged, en die evict de kaart.
+ */
+@Repository
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcCashCardVersionRepository implements CashCardVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+
+    public JdbcCashCardVersionRepository(JdbcTemplate jdbcTemplate, CacheManager cacheManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    @Cacheable(cacheNames = CashCardCaches.VERSIONS, key = "#p0", sync = true)
+    public Optional<CashCardVersion> findById(Long id) {
+        return findCurrent(id);
+    }
+
+    /*
+    Buiten de cache om. Alleen betrouwbaar als de rij in cash_card gelockt is, zie CashCardService.update.
+     */
+    @Override
+    public Optional<CashCardVersion> findCurrent(Long id) {
+        return jdbcTemplate.query("SELECT version, modified_at FROM cash_card_version WHERE cash_card_id = ? AND NOT deleted",
+                (rs, rowNum) -> new CashCardVersion("\"" + rs.getLong(1) + "\"", rs.getTimestamp(2).toInstant()),
+                id).stream().findFirst();
+    }
+
+    @Override
+    @Cacheable(cacheNames = CashCardCaches.VERSIONS, key = "'" + ALL + "'", sync = true)
+    public CashCardVersion findAll() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(version), 0), MAX(modified_at) FROM cash_card_version",
+                (rs, rowNum) -> new CashCardVersion("\"" + rs.getBigDecimal(1).toPlainString() + "\"",
+                        rs.getTimestamp(2) == null ? Instant.EPOCH : rs.getTimestamp(2).toInstant()));
+    }
+
+    @EventListener
+    public void onCashCardsChanged(CashCardsChangedEvent event) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT NEXT VALUE FOR cash_card_version_seq FROM SYSTEM_RANGE(1, ?)",
+                Long.class, event.changes().size());
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(event.changes().size());
+        List<Long> ids = new ArrayList<>(event.changes().size());
+        for (int i = 0; i < event.changes().size(); i++) {
+            CashCardChange change = event.changes().get(i);
+            Long id = change.after() == null ? change.before().id() : change.after().id();
+            rows.add(new Object[]{id, versions.get(i), now, change.after() == null});
+            ids.add(id);
+        }
+        jdbcTemplate.batchUpdate("""
+                        MERGE INTO cash_card_version c
+                        USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP), CAST(? AS BOOLEAN)))
+                            AS v (cash_card_id, version, modified_at, deleted)
+                        ON c.cash_card_id = v.cash_card_id
+                        WHEN MATCHED THEN UPDATE SET version = v.version, modified_at = v.modified_at, deleted = v.deleted
+                        WHEN NOT MATCHED THEN INSERT (cash_card_id, version, modified_at, deleted)
+                            VALUES (v.cash_card_id, v.version, v.modified_at, v.deleted)
+                        """,
+                rows);
+        // de caches zijn transaction-aware (zie CacheConfiguration), dus dit gebeurt pas na de commit
+        evict(ids);
+    }
+
+    private void evict(List<Long> ids) {
+        Cache versions = cacheManager.getCache(CashCardCaches.VERSIONS);
+        if (versions == null) {
+            return;
+        }
+        ids.forEach(versions::evict);
+        versions.evict(ALL);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.data.repository.reactive.ReactiveSortingRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+De R2DBC tegenhanger van CashCardRepository, voor de /reactive/cashcards routes.
+Dezelfde tabel en dezelfde CashCard, maar elke methode geeft een Mono of Flux terug en er wacht geen thread op de database.
+Er is geen cache: die hoort bij de blocking findById. Alleen lezen: schrijven gaat via ReactiveCashCardService.
+ */
+public interface ReactiveCashCardRepository extends ReactiveCrudRepository<CashCard, Long>, ReactiveSortingRepository<CashCard, Long> {
+
+    Mono<CashCard> findByIdAndOwner(Long id, String owner);
+
+    /*
+    Pageable wordt LIMIT/OFFSET plus ORDER BY, net als bij CashCardRepository.findAll(Pageable), maar zonder COUNT query.
+     */
+    Flux<CashCard> findAllBy(Pageable pageable);
+}
@@ -0,0 +1,330 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/*
+Append-only journal van nieuwe cash cards voor CashCardWriteBehindService.
+
+Het journal bestaat uit segmenten <generation>.journal in één directory. Elk record is
+[int lengte][long id][long amount][owner in UTF-8][int CRC32], zodat een half geschreven record na een crash
+herkend en weggeknipt wordt. Een positie in het journal is (generation, offset na het record).
+
+append schrijft het record en komt pas terug als het met force (fsync) op disk staat. fsync wordt gebundeld
+(group commit): wie de sync lock krijgt forceert alles wat er op dat moment geschreven is, de andere writers die
+daarop wachtten zijn daarna ook klaar. Onder load kost dat dus één fsync per groep in plaats van per kaart.
+
+Een IOException bij schrijven, fsync of een nieuw segment stopt het journal: wat na de laatste geslaagde fsync
+geschreven is wordt weer afgeknipt en uit de unflushed lijst gehaald (die writers krijgen allemaal de fout), het
+kanaal gaat dicht en elke volgende append faalt direct. Zo kan er na een fout geen record half of ongemeld op disk
+blijven staan dat bij het herstarten alsnog in de database komt. Wat al wel gesynct was wordt gewoon geflusht.
+
+Records blijven in volgorde in het geheugen staan tot de flusher ze met flushed() afmeldt. Als het huidige segment
+groter is dan segmentBytes begint de volgende sync een nieuw segment; release() verwijdert de segmenten die
+helemaal in de database staan.
+ */
+final class CashCardJournal implements Closeable {
+
+    record Entry(CashCard cashCard, long generation, long end) {
+    }
+
+    private static final String SUFFIX = ".journal";
+    private static final int MAX_RECORD_LENGTH = 16 + 4 * 256;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Deque<Entry> unflushed = new ArrayDeque<>();
+    private FileChannel channel;
+    private long generation;
+    private long position;
+    private IOException failure;
+    private volatile long syncedGeneration;
+    private volatile long syncedPosition;
+
+    CashCardJournal(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /*
+    Opent het journal en geeft alle complete records vanaf (fromGeneration, fromPosition) terug; die staan daarna ook
+    in de unflushed lijst. Een beschadigde staart wordt afgeknipt. Segmenten van voor fromGeneration worden verwijderd.
+     */
+    List<Entry> open(long fromGeneration, long fromPosition) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> generations;
+        try (Stream<Path> files = Files.list(directory)) {
+            generations = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.valueOf(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        // bestaat het segment van de checkpoint niet meer, dan in een nieuw segment verder
+        generation = fromGeneration + 1;
+        for (long segment : generations) {
+            if (segment < fromGeneration) {
+                Files.delete(segment(segment));
+                continue;
+            }
+            generation = segment;
+            entries.addAll(read(segment, segment == fromGeneration ? fromPosition : 0));
+        }
+        channel = FileChannel.open(segment(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        position = channel.size();
+        channel.position(position);
+        syncedGeneration = generation;
+        syncedPosition = position;
+        unflushed.addAll(entries);
+        return entries;
+    }
+
+    Entry append(CashCard cashCard) throws IOException {
+        ByteBuffer record = encode(cashCard);
+        Entry entry;
+        appendLock.lock();
+        try {
+            checkOpen();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+            position = channel.position();
+            entry = new Entry(cashCard, generation, position);
+            unflushed.addLast(entry);
+        } finally {
+            appendLock.unlock();
+        }
+        sync(entry);
+        return entry;
+    }
+
+    private void sync(Entry entry) throws IOException {
+        if (isSynced(entry)) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (isSynced(entry)) {
+                return;
+            }
+            FileChannel current;
+            long targetGeneration;
+            long targetPosition;
+            appendLock.lock();
+            try {
+                // een eerdere sync is mislukt en heeft dit record al afgeknipt
+                checkOpen();
+                current = channel;
+                targetGeneration = generation;
+                targetPosition = position;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                failLocked(e);
+                throw e;
+            }
+            syncedGeneration = targetGeneration;
+            syncedPosition = targetPosition;
+            if (targetPosition >= segmentBytes) {
+                try {
+                    roll();
+                } catch (IOException e) {
+                    failLocked(e);
+                    throw e;
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal " + directory + " is gestopt na een eerdere fout", failure);
+        }
+    }
+
+    private void failLocked(IOException e) {
+        appendLock.lock();
+        try {
+            fail(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // alleen onder appendLock: knipt alles na de laatste fsync af, ook uit unflushed, en sluit het kanaal
+    private void fail(IOException e) {
+        if (failure != null) {
+            return;
+        }
+        failure = e;
+        while (!unflushed.isEmpty() && !isSynced(unflushed.peekLast())) {
+            unflushed.removeLast();
+        }
+        try {
+            if (channel.isOpen()) {
+                if (generation == syncedGeneration) {
+                    channel.truncate(syncedPosition);
+                    channel.force(false);
+                }
+                channel.close();
+            }
+        } catch (IOException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+    }
+
+    // alleen onder syncLock: het oude segment wordt helemaal geforceerd voordat er naar het nieuwe geschreven wordt
+    private void roll() throws IOException {
+        appendLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            generation++;
+            channel = FileChannel.open(segment(generation), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            position = 0;
+            syncedPosition = 0;
+            syncedGeneration = generation;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private boolean isSynced(Entry entry) {
+        long generation = syncedGeneration;
+        return entry.generation() < generation || (entry.generation() == generation && entry.end() <= syncedPosition);
+    }
+
+    // de oudste records die op disk staan en nog niet geflusht zijn, in journal volgorde
+    List<Entry> peekSynced(int max) {
+        List<Entry> entries = new ArrayList<>(max);
+        appendLock.lock();
+        try {
+            for (Entry entry : unflushed) {
+                if (entries.size() == max || !isSynced(entry)) {
+                    break;
+                }
+                entries.add(entry);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        return entries;
+    }
+
+    void flushed(int count) {
+        appendLock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                unflushed.removeFirst();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // verwijdert de segmenten van voor flushedGeneration; die staan helemaal in de database
+    void release(long flushedGeneration) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                String name = file.getFileName().toString();
+                if (Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) < flushedGeneration) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (channel != null && failure == null) {
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private List<Entry> read(long segment, long from) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment(segment));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position((int) Math.min(from, bytes.length));
+        List<Entry> entries = new ArrayList<>();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 16 || length > MAX_RECORD_LENGTH || buffer.remaining() < 4 + length + 4) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, buffer.position() + 4, length);
+            if (buffer.getInt(buffer.position() + 4 + length) != (int) crc.getValue()) {
+                break;
+            }
+            CashCard cashCard = decode(ByteBuffer.wrap(bytes, buffer.position() + 4, length), length);
+            buffer.position(buffer.position() + 4 + length + 4);
+            entries.add(new Entry(cashCard, segment, buffer.position()));
+        }
+        if (buffer.position() < bytes.length && buffer.position() >= from) {
+            try (FileChannel file = FileChannel.open(segment(segment), StandardOpenOption.WRITE)) {
+                file.truncate(buffer.position());
+                file.force(false);
+            }
+        }
+        return entries;
+    }
+
+    private static ByteBuffer encode(CashCard cashCard) {
+        byte[] owner = cashCard.owner().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(16 + owner.length)
+                .putLong(cashCard.id())
+                .putLong(cashCard.amount())
+                .put(owner);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        return ByteBuffer.allocate(4 + payload.capacity() + 4)
+                .putInt(payload.capacity())
+                .put(payload.array())
+                .putInt((int) crc.getValue())
+                .flip();
+    }
+
+    private static CashCard decode(ByteBuffer payload, int length) {
+        long id = payload.getLong();
+        long amount = payload.getLong();
+        return new CashCard(id, amount, new String(payload.array(), payload.position(), length - 16, StandardCharsets.UTF_8));
+    }
+
+    private Path segment(long generation) {
+        return directory.resolve(String.format("%019d%s", generation, SUFFIX));
+    }
+}
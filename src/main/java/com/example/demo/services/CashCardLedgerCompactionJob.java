@@ -0,0 +1,48 @@
+package com.example.demo.services;
+
+import com.example.demo.repositories.CashCardLedgerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*
+Onderhoud van de ledger, elke cashcard.ledger.compaction-interval:
+- een snapshot voor elke kaart met minstens cashcard.ledger.snapshot-every entries sinds de vorige, zodat een
+  saldo-op-tijdstip nooit meer dan dat aantal entries hoeft op te tellen
+- entries ouder dan cashcard.ledger.retention worden in een snapshot gevouwen en verwijderd
+Beide in een eigen transactie.
+ */
+@Component
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardLedgerCompactionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CashCardLedgerCompactionJob.class);
+
+    private final CashCardLedgerRepository cashCardLedgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int snapshotEvery;
+    private final Duration retention;
+
+    public CashCardLedgerCompactionJob(CashCardLedgerRepository cashCardLedgerRepository, TransactionTemplate transactionTemplate,
+                                       @Value("${cashcard.ledger.snapshot-every:100}") int snapshotEvery,
+                                       @Value("${cashcard.ledger.retention:P30D}") Duration retention) {
+        this.cashCardLedgerRepository = cashCardLedgerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotEvery = snapshotEvery;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${cashcard.ledger.compaction-interval:PT1H}", initialDelayString = "${cashcard.ledger.compaction-interval:PT1H}")
+    public void run() {
+        Integer snapshots = transactionTemplate.execute(status -> cashCardLedgerRepository.snapshot(snapshotEvery));
+        Integer removed = transactionTemplate.execute(status -> cashCardLedgerRepository.compact(Instant.now().minus(retention)));
+        log.info("Ledger: {} snapshots gemaakt, {} entries gecompacteerd", snapshots, removed);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardCursor;
+import com.example.demo.model.CashCardsChangedEvent;
+import com.example.demo.repositories.CashCardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/*
+Leesacties van CashCardController op CashCardRepository, met gelijktijdige identieke lookups samengevoegd (zie
+SingleFlight): bij een piek op dezelfde kaart of dezelfde pagina gaat er één query naar de cache of de database en
+krijgen alle wachtende requests dezelfde uitkomst. De sleutel is de query zelf: het id, de PageRequest (pagina,
+grootte en sortering) of de keyset cursor met de limit.
+
+Na de commit van een wijziging worden de lopende flights vergeten, zodat een request dat daarna binnenkomt niet
+aansluit bij een query die de wijziging nog niet zag.
+
+cashcard.reads.coalesce=false schakelt het samenvoegen uit, bijvoorbeeld om te vergelijken in CashCardReadBenchmark.
+ */
+@Service
+public class CashCardReadService {
+
+    private final CashCardRepository cashCardRepository;
+    private final boolean coalesce;
+    private final SingleFlight<Long, Optional<CashCard>> byId = new SingleFlight<>();
+    private final SingleFlight<PageRequest, Page<CashCard>> pages = new SingleFlight<>();
+    private final SingleFlight<Keyset, List<CashCard>> keysetPages = new SingleFlight<>();
+
+    public CashCardReadService(CashCardRepository cashCardRepository,
+                               @Value("${cashcard.reads.coalesce:true}") boolean coalesce) {
+        this.cashCardRepository = cashCardRepository;
+        this.coalesce = coalesce;
+    }
+
+    public Optional<CashCard> findById(Long id) {
+        return execute(byId, id, () -> cashCardRepository.findById(id));
+    }
+
+    public Page<CashCard> findAll(PageRequest pageRequest) {
+        return execute(pages, pageRequest, () -> cashCardRepository.findAll(pageRequest));
+    }
+
+    public List<CashCard> findPage(CashCardCursor cursor, int limit) {
+        return execute(keysetPages, new Keyset(cursor, limit), () -> cashCardRepository.findPage(cursor, limit));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCashCardsChanged(CashCardsChangedEvent event) {
+        for (CashCardChange change : event.changes()) {
+            byId.forget(change.after() == null ? change.before().id() : change.after().id());
+        }
+        pages.forgetAll();
+        keysetPages.forgetAll();
+    }
+
+    private <K, V> V execute(SingleFlight<K, V> flights, K key, Supplier<V> call) {
+        return coalesce ? flights.execute(key, call) : call.get();
+    }
+
+    private record Keyset(CashCardCursor cursor, int limit) {
+    }
+}
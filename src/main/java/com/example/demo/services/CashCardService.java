@@ -0,0 +1,85 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardsChangedEvent;
+import com.example.demo.repositories.CashCardRepository;
+import com.example.demo.repositories.CashCardVersionRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/*
+Schrijfacties op cash cards vanuit CashCardController.
+
+Elke methode is één transactie: de wijziging in cash_card en een CashCardsChangedEvent, zodat de listeners
+(bijvoorbeeld de owner summary) in dezelfde transactie worden bijgewerkt. De huidige rij wordt met findByIdForUpdate
+gelezen en niet uit de cache, want de oude waarde moet exact kloppen en mag niet tegelijk door een ander request
+gewijzigd worden. Om dezelfde reden wordt een If-Match pas na die lock met de versie vergeleken.
+ */
+@Service
+public class CashCardService {
+
+    private final CashCardRepository cashCardRepository;
+    private final CashCardVersionRepository cashCardVersionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CashCardService(CashCardRepository cashCardRepository, CashCardVersionRepository cashCardVersionRepository,
+                           ApplicationEventPublisher eventPublisher) {
+        this.cashCardRepository = cashCardRepository;
+        this.cashCardVersionRepository = cashCardVersionRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public CashCard create(CashCard cashCard) {
+        CashCard savedCashCard = cashCardRepository.save(new CashCard(null, cashCard.amount(), cashCard.owner()));
+        publish(new CashCardChange(null, savedCashCard));
+        return savedCashCard;
+    }
+
+    /*
+    Zet het bedrag van de kaart als hij van owner is. Geeft de bijgewerkte kaart terug, of empty als die er niet is.
+     */
+    @Transactional
+    public Optional<CashCard> update(Long id, String owner, long amount) {
+        return update(id, owner, amount, List.of());
+    }
+
+    /*
+    Als update, maar alleen als ifMatch leeg is of de huidige versie erin staat (zie CashCardVersion.matchesAny).
+    Anders blijft de kaart ongewijzigd en is het resultaat empty.
+     */
+    @Transactional
+    public Optional<CashCard> update(Long id, String owner, long amount, Collection<String> ifMatch) {
+        Optional<CashCard> current = cashCardRepository.findByIdForUpdate(id)
+                .filter(cashCard -> cashCard.owner().equals(owner))
+                .filter(cashCard -> ifMatch.isEmpty() || cashCardVersionRepository.findCurrent(id)
+                        .filter(version -> version.matchesAny(ifMatch)).isPresent());
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        CashCard updatedCashCard = cashCardRepository.save(new CashCard(id, amount, owner));
+        publish(new CashCardChange(current.get(), updatedCashCard));
+        return Optional.of(updatedCashCard);
+    }
+
+    @Transactional
+    public boolean delete(Long id) {
+        Optional<CashCard> current = cashCardRepository.findByIdForUpdate(id);
+        if (current.isEmpty()) {
+            return false;
+        }
+        cashCardRepository.deleteById(id);
+        publish(new CashCardChange(current.get(), null));
+        return true;
+    }
+
+    private void publish(CashCardChange change) {
+        eventPublisher.publishEvent(new CashCardsChangedEvent(List.of(change)));
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardTransaction;
+import com.example.demo.model.CashCardsChangedEvent;
+import com.example.demo.repositories.CashCardCaches;
+import com.example.demo.repositories.CashCardTransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Bij- en afboekingen op het saldo van een cash card, voor POST /cashcards/{id}/transactions.
+
+Boekingen op dezelfde kaart worden samengevoegd (combining): elke boeking gaat in de wachtrij van de kaart, en wie
+de lock van die kaart krijgt boekt alles wat er op dat moment klaarstaat (maximaal cashcard.transactions.max-batch)
+in één transactie met één UPDATE van de som. De anderen wachten alleen tot hun resultaat er is. Bij één drukke kaart
+is dat één row lock en één commit per batch in plaats van per boeking, en elke boeking krijgt toch zijn eigen saldo
+terug, in de volgorde van de wachtrij. Zonder concurrency is een batch gewoon één boeking.
+
+Boekingen met een Idempotency-Key die al eerder geboekt is krijgen het opgeslagen resultaat terug en worden niet
+opnieuw geboekt; dezelfde sleutel twee keer in één batch wordt ook maar één keer geboekt. De sleutels worden pas
+gelezen als de rij gelockt is (zie CashCardTransactionRepository), dus ook twee lanes of instanties voor dezelfde
+kaart boeken een sleutel niet twee keer.
+
+Een afboeking die het saldo onder nul zou brengen wordt niet geboekt en krijgt InsufficientFundsException, een
+boeking waarbij het saldo niet meer in een long past BalanceOverflowException. Binnen een batch wordt dat per boeking
+bepaald, in de volgorde van de wachtrij, dus de andere boekingen gaan gewoon door.
+
+Net als bij CashCardService gaat er binnen de transactie een CashCardsChangedEvent uit, en na de commit worden de
+caches van CashCardRepository geëvict.
+ */
+@Service
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class CashCardTransactionService {
+
+    private final CashCardTransactionRepository cashCardTransactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final int maxBatchSize;
+    private final ConcurrentMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public CashCardTransactionService(CashCardTransactionRepository cashCardTransactionRepository,
+                                      TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                                      CacheManager cacheManager,
+                                      @Value("${cashcard.transactions.max-batch:256}") int maxBatchSize) {
+        this.cashCardTransactionRepository = cashCardTransactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /*
+    Boekt amount (centen, negatief is afboeken) op kaart id. Geeft de boeking met het nieuwe saldo terug, of empty
+    als de kaart niet bestaat. Bij een al gebruikte idempotencyKey is het de eerder opgeslagen boeking; de aanroeper
+    moet zelf controleren of het bedrag daarvan overeenkomt. InsufficientFundsException als het saldo niet toereikt,
+    BalanceOverflowException als het nieuwe saldo te groot zou worden.
+     */
+    public Optional<CashCardTransaction> apply(Long id, long amount, String idempotencyKey) {
+        Pending pending = new Pending(amount, idempotencyKey);
+        Lane lane = lanes.computeIfAbsent(id, Lane::new);
+        lane.queue.add(pending);
+        while (!pending.result.isDone()) {
+            lane.lock.lock();
+            try {
+                if (!pending.result.isDone()) {
+                    applyBatch(lane.id, drain(lane.queue));
+                }
+            } finally {
+                lane.lock.unlock();
+            }
+        }
+        // een boeking die na deze check nog in de oude lane komt wordt door zijn eigen thread afgehandeld
+        if (lane.queue.isEmpty()) {
+            lanes.remove(id, lane);
+        }
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private List<Pending> drain(Queue<Pending> queue) {
+        List<Pending> batch = new ArrayList<>();
+        Pending pending;
+        while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+            batch.add(pending);
+        }
+        return batch;
+    }
+
+    private void applyBatch(Long id, List<Pending> batch) {
+        CashCardChange change;
+        try {
+            change = transactionTemplate.execute(status -> book(id, batch));
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+            return;
+        }
+        if (change != null) {
+            cacheManager.getCache(CashCardCaches.BY_ID).evict(id);
+            cacheManager.getCache(CashCardCaches.BY_ID_AND_OWNER).evict(CashCardCaches.ownerKey(id, change.after().owner()));
+        }
+        for (Pending pending : batch) {
+            Pending origin = pending.duplicateOf != null ? pending.duplicateOf : pending;
+            if (origin.refused != null) {
+                pending.result.completeExceptionally(origin.refused);
+            } else {
+                pending.result.complete(Optional.ofNullable(origin.transaction));
+            }
+        }
+    }
+
+    /*
+    Zet transaction (of refused) op elke boeking uit de batch en geeft de wijziging van de kaart terug, of
+    null als er niets geboekt is (alleen herhaalde sleutels of geweigerde afboekingen, of de kaart bestaat niet).
+     */
+    private CashCardChange book(Long id, List<Pending> batch) {
+        Optional<CashCard> current = cashCardTransactionRepository.lock(id);
+        if (current.isEmpty()) {
+            return null;
+        }
+        Map<String, CashCardTransaction> previous = cashCardTransactionRepository.findByIdempotencyKeys(id,
+                batch.stream().map(pending -> pending.idempotencyKey).filter(Objects::nonNull).distinct().toList());
+        Map<String, Pending> firstByKey = new HashMap<>();
+        List<Pending> fresh = new ArrayList<>(batch.size());
+        CashCard before = current.get();
+        long balance = before.amount();
+        long delta = 0;
+        Map<String, CashCardTransaction> keyed = new HashMap<>();
+        for (Pending pending : batch) {
+            if (pending.idempotencyKey != null) {
+                pending.transaction = previous.get(pending.idempotencyKey);
+                if (pending.transaction != null) {
+                    continue;
+                }
+                pending.duplicateOf = firstByKey.putIfAbsent(pending.idempotencyKey, pending);
+                if (pending.duplicateOf != null) {
+                    continue;
+                }
+            }
+            // een overflow weigert alleen deze boeking; een exception zou de hele batch terugdraaien. Ook de som van
+            // de batch moet passen, die gaat als één delta naar de UPDATE (bij een negatief startsaldo kan die groter zijn)
+            long next = balance + pending.amount;
+            if (overflows(balance, pending.amount, next) || overflows(delta, pending.amount, delta + pending.amount)) {
+                pending.refused = new BalanceOverflowException(id);
+                continue;
+            }
+            if (pending.amount < 0 && next < 0) {
+                pending.refused = new InsufficientFundsException(id);
+                continue;
+            }
+            balance = next;
+            delta += pending.amount;
+            fresh.add(pending);
+            pending.transaction = new CashCardTransaction(id, pending.amount, balance);
+            if (pending.idempotencyKey != null) {
+                keyed.put(pending.idempotencyKey, pending.transaction);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return null;
+        }
+        // de rij is gelockt, dus dit kan alleen misgaan als iemand buiten de lock om het saldo verlaagd heeft
+        if (!cashCardTransactionRepository.adjust(id, delta)) {
+            throw new InsufficientFundsException(id);
+        }
+        cashCardTransactionRepository.saveAll(keyed);
+        CashCard after = new CashCard(id, balance, before.owner());
+        CashCardChange change = new CashCardChange(before, after);
+        eventPublisher.publishEvent(new CashCardsChangedEvent(List.of(change)));
+        return change;
+    }
+
+    private static boolean overflows(long a, long b, long sum) {
+        return ((a ^ sum) & (b ^ sum)) < 0;
+    }
+
+    public static final class InsufficientFundsException extends RuntimeException {
+
+        public InsufficientFundsException(Long id) {
+            super("Insufficient funds on cash card " + id);
+        }
+    }
+
+    public static final class BalanceOverflowException extends RuntimeException {
+
+        public BalanceOverflowException(Long id) {
+            super("Balance of cash card " + id + " would overflow");
+        }
+    }
+
+    private static final class Lane {
+        final Long id;
+        final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        final ReentrantLock lock = new ReentrantLock();
+
+        Lane(Long id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Pending {
+        final long amount;
+        final String idempotencyKey;
+        final CompletableFuture<Optional<CashCardTransaction>> result = new CompletableFuture<>();
+        CashCardTransaction transaction;
+        RuntimeException refused;
+        Pending duplicateOf;
+
+        Pending(long amount, String idempotencyKey) {
+            this.amount = amount;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+}
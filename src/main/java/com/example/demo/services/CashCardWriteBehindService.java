@@ -0,0 +1,193 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardsChangedEvent;
+import com.example.demo.repositories.CashCardCaches;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Opt-in: cashcard.write-behind.enabled=true
+
+POST /cashcards schrijft de nieuwe kaart dan niet meer direct naar de database maar naar een lokaal journal
+(CashCardJournal) en antwoordt zodra het record met fsync op disk staat. Een flusher zet de kaarten elke
+cashcard.write-behind.flush-interval in batches van cashcard.write-behind.batch-size in cash_card, samen met de
+CashCardsChangedEvent voor summary en ledger.
+
+Het id wordt vooraf uitgedeeld, in blokken van ID_BLOCK_SIZE uit de sequence cash_card_write_behind_seq. Die begint
+ver boven de ids van de identity kolom, zodat de twee elkaar niet in de weg zitten.
+
+Tot de kaart geflusht is geeft findPending hem terug, zodat GET /cashcards/{id} direct na de POST werkt
+(read-your-writes). Lijsten, paginering en de summary zien de kaart pas na de flush. PUT en DELETE op een kaart
+die nog pending is geven 409 (zie CashCardController), want er is nog geen rij om te wijzigen.
+
+Faalt het journal (zie CashCardJournal), dan geeft elke volgende POST een fout tot de applicatie herstart; wat al
+bevestigd was wordt nog wel geflusht.
+
+Crash recovery: de positie tot waar het journal in de database staat wordt in dezelfde transactie als de inserts
+in cash_card_journal_checkpoint bijgehouden. Bij het opstarten wordt alles daarna opnieuw ingelezen en geflusht,
+dus elke bevestigde kaart komt precies één keer in cash_card.
+ */
+@Service
+@ConditionalOnProperty(name = "cashcard.write-behind.enabled", havingValue = "true")
+public class CashCardWriteBehindService {
+
+    static final int ID_BLOCK_SIZE = 1000;
+    static final int MAX_OWNER_LENGTH = 256;
+
+    private static final Logger log = LoggerFactory.getLogger(CashCardWriteBehindService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final String journalName;
+    private final CashCardJournal journal;
+    private final int batchSize;
+    private final Map<Long, CashCard> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long lastId = -1;
+
+    public CashCardWriteBehindService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                      ApplicationEventPublisher eventPublisher, CacheManager cacheManager,
+                                      @Value("${cashcard.write-behind.directory}") String directory,
+                                      @Value("${cashcard.write-behind.batch-size:500}") int batchSize,
+                                      @Value("${cashcard.write-behind.segment-bytes:67108864}") long segmentBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        Path path = Path.of(directory).toAbsolutePath().normalize();
+        this.journalName = path.toString();
+        this.journal = new CashCardJournal(path, segmentBytes);
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        long[] checkpoint = jdbcTemplate.query("SELECT generation, position FROM cash_card_journal_checkpoint WHERE journal = ?",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, journalName)
+                .stream().findFirst().orElse(new long[]{0, 0});
+        List<CashCardJournal.Entry> entries = journal.open(checkpoint[0], checkpoint[1]);
+        for (CashCardJournal.Entry entry : entries) {
+            pending.put(entry.cashCard().id(), entry.cashCard());
+        }
+        if (!entries.isEmpty()) {
+            log.info("{} kaarten uit het journal {} opnieuw naar de database schrijven", entries.size(), journalName);
+        }
+        flush();
+    }
+
+    /*
+    Geeft de kaart met zijn nieuwe id terug zodra hij duurzaam in het journal staat. owner is verplicht.
+     */
+    public CashCard create(CashCard cashCard) {
+        if (cashCard.owner() == null || cashCard.owner().length() > MAX_OWNER_LENGTH) {
+            throw new IllegalArgumentException("owner is required and at most " + MAX_OWNER_LENGTH + " characters");
+        }
+        CashCard newCashCard = new CashCard(nextId(), cashCard.amount(), cashCard.owner());
+        // eerst in pending: de flusher kan hem al wegschrijven (en uit pending halen) voordat append terugkomt
+        pending.put(newCashCard.id(), newCashCard);
+        try {
+            journal.append(newCashCard);
+        } catch (IOException e) {
+            pending.remove(newCashCard.id());
+            throw new UncheckedIOException(e);
+        }
+        return newCashCard;
+    }
+
+    public Optional<CashCard> findPending(Long id) {
+        return Optional.ofNullable(pending.get(id));
+    }
+
+    @Scheduled(fixedDelayString = "${cashcard.write-behind.flush-interval:PT0.1S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<CashCardJournal.Entry> entries;
+            while (!(entries = journal.peekSynced(batchSize)).isEmpty()) {
+                write(entries);
+                journal.flushed(entries.size());
+                entries.forEach(entry -> pending.remove(entry.cashCard().id()));
+                try {
+                    journal.release(entries.get(entries.size() - 1).generation());
+                } catch (IOException e) {
+                    log.warn("Oude segmenten van journal {} konden niet verwijderd worden", journalName, e);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<CashCardJournal.Entry> entries) {
+        CashCardJournal.Entry last = entries.get(entries.size() - 1);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("INSERT INTO cash_card (id, amount, owner) VALUES (?, ?, ?)",
+                    entries.stream().map(entry -> new Object[]{entry.cashCard().id(), entry.cashCard().amount(), entry.cashCard().owner()}).toList());
+            jdbcTemplate.update("""
+                            MERGE INTO cash_card_journal_checkpoint c
+                            USING (VALUES (CAST(? AS VARCHAR(1024)), CAST(? AS BIGINT), CAST(? AS BIGINT))) AS v (journal, generation, position)
+                            ON c.journal = v.journal
+                            WHEN MATCHED THEN UPDATE SET generation = v.generation, position = v.position
+                            WHEN NOT MATCHED THEN INSERT (journal, generation, position) VALUES (v.journal, v.generation, v.position)
+                            """,
+                    journalName, last.generation(), last.end());
+            eventPublisher.publishEvent(new CashCardsChangedEvent(
+                    entries.stream().map(entry -> new CashCardChange(null, entry.cashCard())).toList()));
+            // een miss op het nieuwe id kan gecachet zijn (zie CashCardRepository); de caches evicten pas na de commit
+            Cache byId = cacheManager.getCache(CashCardCaches.BY_ID);
+            Cache byIdAndOwner = cacheManager.getCache(CashCardCaches.BY_ID_AND_OWNER);
+            for (CashCardJournal.Entry entry : entries) {
+                byId.evict(entry.cashCard().id());
+                byIdAndOwner.evict(CashCardCaches.ownerKey(entry.cashCard().id(), entry.cashCard().owner()));
+            }
+        });
+    }
+
+    private long nextId() {
+        idLock.lock();
+        try {
+            if (nextId > lastId) {
+                nextId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR cash_card_write_behind_seq", Long.class);
+                lastId = nextId + ID_BLOCK_SIZE - 1;
+            }
+            return nextId++;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.services;
+
+import com.example.demo.model.Greeting;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/*
+Rendert templates/greeting.html voor /greeting.
+
+De uitkomst hangt alleen van name af, dus de gerenderde HTML wordt per name bewaard in de greetings cache (Caffeine,
+begrensd via spring.cache.caffeine.spec). Thymeleaf escapet name (th:text), de cache bevat dus al veilige HTML.
+Namen langer dan MAX_CACHED_NAME_LENGTH worden wel gerenderd maar niet gecached.
+
+De ETag is een hash van de HTML, dus sterk: gelijke ETag betekent byte-voor-byte dezelfde body.
+Bij het opstarten wordt de pagina één keer gerenderd, zodat de geparste template al in de Thymeleaf template cache
+zit (spring.thymeleaf.cache) voordat het eerste echte request binnenkomt.
+ */
+@Service
+public class GreetingService {
+
+    public static final String GREETINGS = "greetings";
+    static final int MAX_CACHED_NAME_LENGTH = 256;
+
+    private final ITemplateEngine templateEngine;
+
+    public GreetingService(ITemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    @Cacheable(cacheNames = GREETINGS, condition = "#p0.length() <= " + MAX_CACHED_NAME_LENGTH)
+    public Greeting render(String name) {
+        Context context = new Context(Locale.ROOT);
+        context.setVariable("name", name);
+        String html = templateEngine.process("greeting", context);
+        return new Greeting(html, "\"" + DigestUtils.md5DigestAsHex(html.getBytes(StandardCharsets.UTF_8)) + "\"");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        render("World");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+Schrijfacties van de /reactive/cashcards routes, de reactive tegenhanger van CashCardService.
+
+Lezen gaat via R2DBC, maar schrijven gaat via CashCardService en dus via JDBC. De listeners van CashCardsChangedEvent
+(owner summary, ledger, versies) werken met JDBC en moeten in dezelfde transactie als de wijziging in cash_card
+meegaan; een R2DBC transactie kan dat niet. De blocking aanroep draait op de boundedElastic scheduler, zodat er
+geen request thread op JDBC wacht. De caches worden door CashCardRepository na de commit bijgewerkt.
+ */
+@Service
+@ConditionalOnProperty(name = "cashcard.storage", havingValue = "jdbc", matchIfMissing = true)
+public class ReactiveCashCardService {
+
+    private final CashCardService cashCardService;
+
+    public ReactiveCashCardService(CashCardService cashCardService) {
+        this.cashCardService = cashCardService;
+    }
+
+    public Mono<CashCard> create(CashCard cashCard) {
+        return Mono.fromCallable(() -> cashCardService.create(cashCard))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /*
+    Zet het bedrag van de kaart als hij van owner is. Leeg als de kaart er niet is.
+     */
+    public Mono<CashCard> update(Long id, String owner, long amount) {
+        return Mono.fromCallable(() -> cashCardService.update(id, owner, amount))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public Mono<Boolean> delete(Long id) {
+        return Mono.fromCallable(() -> cashCardService.delete(id))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
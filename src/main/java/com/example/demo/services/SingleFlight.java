@@ -0,0 +1,53 @@
+package com.example.demo.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/*
+Voegt gelijktijdige identieke aanroepen samen: de eerste aanroep voor een sleutel (de leader) voert hem uit, wie
+tijdens die aanroep met dezelfde sleutel binnenkomt wacht op en krijgt hetzelfde resultaat, of dezelfde exception.
+
+De administratie is één ConcurrentHashMap van sleutel naar CompletableFuture, zonder eigen locks. De leader haalt
+zijn flight weg voordat hij het resultaat zet, dus wie daarna binnenkomt start een nieuwe aanroep en krijgt nooit
+een resultaat dat al klaar was. Er wordt niets bewaard, daarvoor zijn de caches.
+
+forget haalt een lopende flight weg zonder hem af te breken: wie al wacht krijgt het resultaat nog, nieuwe aanroepen
+starten een eigen flight. Zo ziet een request dat na een commit binnenkomt geen query die van voor de commit is.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            V result = call.get();
+            flights.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    public void forgetAll() {
+        flights.clear();
+    }
+}
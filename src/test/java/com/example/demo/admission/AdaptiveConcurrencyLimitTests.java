@@ -0,0 +1,69 @@
+package com.example.demo.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Boven de limiet wacht een request in de wachtrij tot er een plek vrijkomt; is de wachtrij vol, of duurt het wachten
+te lang, dan wordt hij direct geweigerd.
+ */
+class AdaptiveConcurrencyLimitTests {
+
+    @Test
+    void shouldRejectWhenTheQueueIsFullOrTheWaitTimesOut() throws Exception {
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(1, 1, 1, 1, 200, TimeUnit.MILLISECONDS);
+        assertThat(concurrencyLimit.acquire()).isEqualTo(AdaptiveConcurrencyLimit.Admission.ADMITTED);
+
+        CompletableFuture<AdaptiveConcurrencyLimit.Admission> waiting = CompletableFuture.supplyAsync(() -> acquire(concurrencyLimit));
+        while (concurrencyLimit.queued() == 0) {
+            Thread.onSpinWait();
+        }
+        assertThat(concurrencyLimit.acquire()).isEqualTo(AdaptiveConcurrencyLimit.Admission.QUEUE_FULL);
+        assertThat(waiting.get(1, TimeUnit.SECONDS)).isEqualTo(AdaptiveConcurrencyLimit.Admission.QUEUE_TIMEOUT);
+        assertThat(concurrencyLimit.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAdmitAWaitingRequestOnRelease() throws Exception {
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(1, 1, 1, 1, 5, TimeUnit.SECONDS);
+        assertThat(concurrencyLimit.acquire()).isEqualTo(AdaptiveConcurrencyLimit.Admission.ADMITTED);
+
+        CompletableFuture<AdaptiveConcurrencyLimit.Admission> waiting = CompletableFuture.supplyAsync(() -> acquire(concurrencyLimit));
+        while (concurrencyLimit.queued() == 0) {
+            Thread.onSpinWait();
+        }
+        concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(waiting.get(1, TimeUnit.SECONDS)).isEqualTo(AdaptiveConcurrencyLimit.Admission.ADMITTED);
+        assertThat(concurrencyLimit.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotAdaptToAnUnmeasuredRelease() throws Exception {
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(4, 1, 100, 0, 0, TimeUnit.SECONDS);
+        for (int i = 0; i < 4; i++) {
+            assertThat(concurrencyLimit.acquire()).isEqualTo(AdaptiveConcurrencyLimit.Admission.ADMITTED);
+        }
+        concurrencyLimit.releaseUnmeasured();
+        assertThat(concurrencyLimit.limit()).isEqualTo(4);
+        assertThat(concurrencyLimit.inFlight()).isEqualTo(3);
+
+        // gemeten releases bij een volle limiet laten hem wel groeien, met ongeveer 0.2 * wortel(limiet) per release
+        for (int i = 0; i < 3; i++) {
+            assertThat(concurrencyLimit.acquire()).isEqualTo(AdaptiveConcurrencyLimit.Admission.ADMITTED);
+            concurrencyLimit.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertThat(concurrencyLimit.limit()).isGreaterThan(4);
+    }
+
+    private static AdaptiveConcurrencyLimit.Admission acquire(AdaptiveConcurrencyLimit concurrencyLimit) {
+        try {
+            return concurrencyLimit.acquire();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
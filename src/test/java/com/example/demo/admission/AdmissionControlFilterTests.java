@@ -0,0 +1,77 @@
+package com.example.demo.admission;
+
+import com.example.demo.metrics.CashCardMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/*
+De bucket van een request: de ingelogde gebruiker, anders het IP adres, en de X-Owner header alleen achter een
+vertrouwde proxy. Elke lijst, ook gepagineerd of als stream, kost list-cost.
+ */
+class AdmissionControlFilterTests {
+
+    @Test
+    void shouldIgnoreTheOwnerHeaderFromAnUntrustedClient() {
+        MockHttpServletRequest request = request("203.0.113.7", "sarah1");
+        assertThat(AdmissionControlFilter.owner(request, Set.of())).isEqualTo("203.0.113.7");
+        assertThat(AdmissionControlFilter.owner(request, Set.of("10.0.0.1"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void shouldUseTheOwnerHeaderBehindATrustedProxy() {
+        assertThat(AdmissionControlFilter.owner(request("10.0.0.1", "sarah1"), Set.of("10.0.0.1"))).isEqualTo("sarah1");
+        assertThat(AdmissionControlFilter.owner(request("10.0.0.1", null), Set.of("10.0.0.1"))).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void shouldPreferTheAuthenticatedUser() {
+        MockHttpServletRequest request = request("10.0.0.1", "sarah1");
+        request.setUserPrincipal(() -> "kumar2");
+        assertThat(AdmissionControlFilter.owner(request, Set.of("10.0.0.1"))).isEqualTo("kumar2");
+    }
+
+    @Test
+    void shouldChargeEveryListRoute() {
+        assertThat(AdmissionControlFilter.isList(get("/cashcards"))).isTrue();
+        MockHttpServletRequest stream = get("/cashcards");
+        stream.setParameter("stream", "true");
+        assertThat(AdmissionControlFilter.isList(stream)).isTrue();
+        assertThat(AdmissionControlFilter.isList(get("/cashcards/paged"))).isTrue();
+        MockHttpServletRequest keyset = get("/cashcards/paged");
+        keyset.setParameter("cursor", "");
+        assertThat(AdmissionControlFilter.isList(keyset)).isTrue();
+
+        assertThat(AdmissionControlFilter.isList(get("/cashcards/99"))).isFalse();
+        MockHttpServletRequest create = new MockHttpServletRequest("POST", "/cashcards");
+        create.setServletPath("/cashcards");
+        assertThat(AdmissionControlFilter.isList(create)).isFalse();
+    }
+
+    @Test
+    void shouldRejectAListCostAboveTheBurst() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new AdmissionControlFilter(
+                new CashCardMetrics(new SimpleMeterRegistry()), 50, 100, 101, 20, 4, 200, 50, Duration.ofMillis(50), Set.of()));
+    }
+
+    private static MockHttpServletRequest get(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String owner) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cashcards/99");
+        request.setRemoteAddr(remoteAddr);
+        if (owner != null) {
+            request.addHeader(AdmissionControlFilter.OWNER_HEADER, owner);
+        }
+        return request;
+    }
+}
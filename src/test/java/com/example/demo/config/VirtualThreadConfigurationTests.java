@@ -0,0 +1,56 @@
+package com.example.demo.config;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Met cashcard.threads.virtual=true moet Tomcat requests op virtual threads uitvoeren en moeten de gewone endpoints
+blijven werken, ook met een kleine connection pool. Virtual threads bestaan pas vanaf Java 21.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"cashcard.threads.virtual=true", "spring.datasource.hikari.maximum-pool-size=2"})
+class VirtualThreadConfigurationTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    ServletWebServerApplicationContext context;
+
+    @Test
+    void shouldHandleRequestsOnVirtualThreads() throws Exception {
+        Connector connector = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector();
+        Executor executor = connector.getProtocolHandler().getExecutor();
+
+        CompletableFuture<Boolean> isVirtual = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                isVirtual.complete((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+            } catch (ReflectiveOperationException e) {
+                isVirtual.completeExceptionally(e);
+            }
+        });
+        assertThat(isVirtual.get()).isTrue();
+    }
+
+    @Test
+    void shouldServeCashCardsWithASmallConnectionPool() {
+        assertThat(restTemplate.getForEntity("/cashcards", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity("/cashcards?stream=ndjson", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity("/cashcards/paged?page=0&size=2", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Zonder Executors.newVirtualThreadPerTaskExecutor (voor Java 21) moet cashcard.threads.virtual=true terugvallen op de
+gewone platform threads in plaats van de startup te laten falen. Dit draait ook op Java 17, anders dan
+VirtualThreadConfigurationTests.
+ */
+class VirtualThreadFallbackTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(VirtualThreadConfiguration.class)
+            .withPropertyValues("cashcard.threads.virtual=true");
+
+    @Test
+    void shouldNotCreateAnExecutorWhenTheFactoryMethodIsMissing() {
+        assertThat(VirtualThreadConfiguration.available("newNoSuchThreadPerTaskExecutor")).isFalse();
+        assertThat(VirtualThreadConfiguration.newExecutor("newNoSuchThreadPerTaskExecutor")).isEmpty();
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void shouldFallBackToPlatformThreadsBeforeJava21() {
+        contextRunner.run(context -> {
+            assertThat(context).hasNotFailed();
+            assertThat(context).doesNotHaveBean(ExecutorService.class);
+            assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class);
+        });
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void shouldUseVirtualThreadsFromJava21() {
+        contextRunner.run(context -> assertThat(context).hasSingleBean(ExecutorService.class));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Met een burst van 3 en bijna geen aanvulling krijgt één owner na drie requests 429, terwijl een andere owner
+gewoon doorkan. De hele lijst kost 3 tokens, dus die is in één keer de hele burst.
+De test client staat als vertrouwde proxy ingesteld, zodat de owner uit de X-Owner header komt.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "cashcard.admission.enabled=true",
+        "cashcard.admission.owner-rate=0.01",
+        "cashcard.admission.owner-burst=3",
+        "cashcard.admission.list-cost=3",
+        "cashcard.admission.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1"
+})
+class CashCardAdmissionTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldRateLimitPerOwner() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(get("/cashcards/99", "sarah1").getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        ResponseEntity<String> limited = get("/cashcards/99", "sarah1");
+        assertThat(limited.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(Long.parseLong(limited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isPositive();
+
+        assertThat(get("/cashcards/99", "kumar2").getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> metric = restTemplate.getForEntity(
+                "/actuator/metrics/cashcard.admission.rejected?tag=reason:rate_limited", String.class);
+        assertThat(metric.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(metric.getBody()).contains("\"statistic\":\"COUNT\"").doesNotContain("\"value\":0.0");
+    }
+
+    @Test
+    void shouldChargeTheFullListMoreThanASingleCard() {
+        assertThat(get("/cashcards", "esuez5").getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(get("/cashcards/99", "esuez5").getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private ResponseEntity<String> get(String url, String owner) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Owner", owner);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
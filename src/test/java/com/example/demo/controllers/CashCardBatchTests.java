@@ -0,0 +1,94 @@
+package com.example.demo.controllers;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import net.minidev.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Bulk endpoints op /cashcards/batch. De chunk size staat laag zodat ook het opdelen in meerdere chunks getest wordt.
+Alle tests schrijven naar de database, vandaar @DirtiesContext na elke test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "cashcard.batch.chunk-size=2")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardBatchTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldCreateCashCardsFromAJsonArray() {
+        String body = """
+                [
+                    {"amount": 10.00, "owner": "sarah1"},
+                    {"amount": 20.00, "owner": "sarah1"},
+                    {"amount": 30.00},
+                    {"amount": 40.00, "owner": "kumar2"}
+                ]
+                """;
+        DocumentContext documentContext = exchange(HttpMethod.POST, body, MediaType.APPLICATION_JSON);
+        JSONArray statuses = documentContext.read("$[*].status");
+        assertThat(statuses).containsExactly(201, 201, 400, 201);
+        JSONArray indexes = documentContext.read("$[*].index");
+        assertThat(indexes).containsExactly(0, 1, 2, 3);
+
+        Number id = documentContext.read("$[3].id");
+        ResponseEntity<String> getResponse = restTemplate.getForEntity("/cashcards/" + id, String.class);
+        assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Double amount = JsonPath.parse(getResponse.getBody()).read("$.amount");
+        assertThat(amount).isEqualTo(40.00);
+
+        int cashCardCount = JsonPath.parse(restTemplate.getForObject("/cashcards", String.class)).read("$.length()");
+        assertThat(cashCardCount).isEqualTo(7);
+    }
+
+    @Test
+    void shouldUpdateCashCardsFromNdjson() {
+        String body = """
+                {"id": 99, "amount": 1.50, "owner": "sarah1"}
+                {"id": 102, "amount": 2.50, "owner": "sarah1"}
+                {"id": 101, "owner": "sarah1"}
+                {"id": 100, "amount": 3.50, "owner": "sarah1"}
+                """;
+        DocumentContext documentContext = exchange(HttpMethod.PUT, body, MediaType.parseMediaType("application/x-ndjson"));
+        JSONArray statuses = documentContext.read("$[*].status");
+        assertThat(statuses).containsExactly(204, 404, 400, 204);
+
+        Double amount = JsonPath.parse(restTemplate.getForObject("/cashcards/100", String.class)).read("$.amount");
+        assertThat(amount).isEqualTo(3.50);
+        amount = JsonPath.parse(restTemplate.getForObject("/cashcards/102", String.class)).read("$.amount");
+        assertThat(amount).isEqualTo(200.00);
+        amount = JsonPath.parse(restTemplate.getForObject("/cashcards/101", String.class)).read("$.amount");
+        assertThat(amount).isEqualTo(150.00);
+    }
+
+    @Test
+    void shouldDeleteCashCards() {
+        DocumentContext documentContext = exchange(HttpMethod.DELETE, "[99, 1000, 101]", MediaType.APPLICATION_JSON);
+        JSONArray statuses = documentContext.read("$[*].status");
+        assertThat(statuses).containsExactly(204, 404, 204);
+
+        assertThat(restTemplate.getForEntity("/cashcards/99", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity("/cashcards/100", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private DocumentContext exchange(HttpMethod method, String body, MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        ResponseEntity<String> response = restTemplate.exchange("/cashcards/batch", method, new HttpEntity<>(body, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return JsonPath.parse(response.getBody());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.repositories.CashCardCaches;
+import com.example.demo.repositories.CashCardRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+De read-through cache voor findById: een tweede GET moet uit de cache komen (zichtbaar in de actuator metrics)
+en een PUT of DELETE moet de kaart weer uit de cache halen, pas na de commit (zie CacheConfiguration).
+Een miss wordt ook gecachet, dus een nieuwe kaart moet zijn id evicten.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CashCardCacheTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    CashCardRepository cashCardRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void shouldServeARepeatedReadFromTheCache() {
+        double hitsBefore = cacheHits();
+
+        restTemplate.getForEntity("/cashcards/100", String.class);
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/100", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        assertThat(cacheHits()).isGreaterThan(hitsBefore);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldEvictTheCashCardOnUpdate() {
+        restTemplate.getForEntity("/cashcards/99", String.class);
+        assertThat(cacheManager.getCache(CashCardCaches.BY_ID).get(99L)).isNotNull();
+
+        HttpEntity<CashCard> request = new HttpEntity<>(new CashCard(null, 4200, null));
+        restTemplate.exchange("/cashcards/99", HttpMethod.PUT, request, Void.class);
+        assertThat(cacheManager.getCache(CashCardCaches.BY_ID).get(99L)).isNull();
+        assertThat(cacheManager.getCache(CashCardCaches.BY_ID_AND_OWNER).get(CashCardCaches.ownerKey(99L, "sarah1"))).isNull();
+
+        Double amount = JsonPath.parse(restTemplate.getForEntity("/cashcards/99", String.class).getBody()).read("$.amount");
+        assertThat(amount).isEqualTo(42.00);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldEvictTheCashCardOnDelete() {
+        restTemplate.getForEntity("/cashcards/101", String.class);
+        restTemplate.exchange("/cashcards/101", HttpMethod.DELETE, null, Void.class);
+
+        assertThat(cacheManager.getCache(CashCardCaches.BY_ID).get(101L)).isNull();
+        assertThat(restTemplate.getForEntity("/cashcards/101", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldEvictOnlyAfterTheCommit() {
+        restTemplate.getForEntity("/cashcards/100", String.class);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cashCardRepository.save(new CashCard(100L, 4200, "sarah1"));
+            // een GET tussen evict en commit zou hier de oude rij opnieuw in de cache zetten
+            assertThat(cacheManager.getCache(CashCardCaches.BY_ID).get(100L)).isNotNull();
+        });
+        assertThat(cacheManager.getCache(CashCardCaches.BY_ID).get(100L)).isNull();
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldNotServeACachedMissAfterACreate() {
+        URI first = restTemplate.postForLocation("/cashcards", new CashCard(null, 100, "sarah1"));
+        long nextId = Long.parseLong(first.getPath().substring(first.getPath().lastIndexOf('/') + 1)) + 1;
+        assertThat(restTemplate.getForEntity("/cashcards/" + nextId, String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        URI second = restTemplate.postForLocation("/cashcards", new CashCard(null, 200, "sarah1"));
+        assertThat(second.getPath()).endsWith("/" + nextId);
+        assertThat(restTemplate.getForEntity(second, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    private double cacheHits() {
+        String metric = restTemplate.getForObject("/actuator/metrics/cache.gets?tag=cache:cashCards&tag=result:hit", String.class);
+        Number value = JsonPath.parse(metric).read("$.measurements[0].value");
+        return value.doubleValue();
+    }
+}
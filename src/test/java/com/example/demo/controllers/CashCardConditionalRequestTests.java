@@ -0,0 +1,86 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ETag/Last-Modified op /cashcards: If-None-Match geeft 304 zolang er niets gewijzigd is, If-Match op PUT weigert een
+update op basis van een oude versie met 412.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardConditionalRequestTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldReturnNotModifiedUntilTheCashCardChanges() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/99", String.class);
+        String eTag = response.getHeaders().getETag();
+        assertThat(eTag).startsWith("\"").doesNotStartWith("W/");
+        assertThat(response.getHeaders().getLastModified()).isPositive();
+
+        ResponseEntity<String> revalidated = get("/cashcards/99", eTag);
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getBody()).isNull();
+
+        restTemplate.exchange("/cashcards/99", HttpMethod.PUT, new HttpEntity<>(new CashCard(null, 1, null)), Void.class);
+        revalidated = get("/cashcards/99", eTag);
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(revalidated.getHeaders().getETag()).isNotEqualTo(eTag);
+        assertThat(revalidated.getBody()).contains("0.01");
+    }
+
+    @Test
+    void shouldRevalidateTheListAfterACreateAndADelete() {
+        String eTag = restTemplate.getForEntity("/cashcards", String.class).getHeaders().getETag();
+        assertThat(get("/cashcards", eTag).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(get("/cashcards/paged?page=0&size=2", eTag).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        restTemplate.postForEntity("/cashcards", new CashCard(null, 25000, "sarah1"), Void.class);
+        ResponseEntity<String> response = get("/cashcards", eTag);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        eTag = response.getHeaders().getETag();
+
+        restTemplate.delete("/cashcards/102");
+        assertThat(get("/cashcards", eTag).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(get("/cashcards/102", eTag).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldRejectAnUpdateWithAStaleETag() {
+        String eTag = restTemplate.getForEntity("/cashcards/100", String.class).getHeaders().getETag();
+        assertThat(put("/cashcards/100", 200, eTag).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        // de ETag van voor de eerste update is nu verouderd
+        assertThat(put("/cashcards/100", 300, eTag).getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(restTemplate.getForEntity("/cashcards/100", String.class).getBody()).contains("2.0");
+
+        assertThat(put("/cashcards/100", 300, "*").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(put("/cashcards/1000", 300, "*").getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    private ResponseEntity<String> get(String url, String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(ifNoneMatch);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private ResponseEntity<Void> put(String url, long amount, String ifMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(ifMatch);
+        return restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(new CashCard(null, amount, null), headers), Void.class);
+    }
+}
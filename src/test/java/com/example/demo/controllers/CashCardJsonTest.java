@@ -1,6 +1,8 @@
 package com.example.demo.controllers;
 
 import com.example.demo.model.CashCard;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import org.assertj.core.util.Arrays;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +13,7 @@ import org.springframework.boot.test.json.JacksonTester;
 import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 /*
 test of omzetten json <=> object goed gaat
  */
@@ -27,9 +30,9 @@ public class CashCardJsonTest {
     @BeforeEach
     void setUp() {
         cashCards = Arrays.array(
-                new CashCard(99L, 123.45, "sarah1"),
-                new CashCard(100L, 1.00, "sarah1"),
-                new CashCard(101L, 150.00, "sarah1"));
+                new CashCard(99L, 12345, "sarah1"),
+                new CashCard(100L, 100, "sarah1"),
+                new CashCard(101L, 15000, "sarah1"));
     }
 
     /*
@@ -64,9 +67,9 @@ public class CashCardJsonTest {
                 }
                 """;
         assertThat(json.parse(expected))
-                .isEqualTo(new CashCard(99L, 123.45, "sarah1"));
+                .isEqualTo(new CashCard(99L, 12345, "sarah1"));
         assertThat(json.parseObject(expected).id()).isEqualTo(99L);
-        assertThat(json.parseObject(expected).amount()).isEqualTo(123.45);
+        assertThat(json.parseObject(expected).amount()).isEqualTo(12345L);
     }
 
     @Test
@@ -86,4 +89,39 @@ public class CashCardJsonTest {
                 """;
         assertThat(jsonList.parse(expected)).isEqualTo(cashCards);
     }
+
+    /*
+    amount is een long in centen; in JSON blijft het een decimaal getal, zonder afrondingsfouten.
+     */
+    @Test
+    void amountIsWrittenAsDecimal() throws IOException {
+        assertThat(json.write(new CashCard(1L, 5, "sarah1"))).extractingJsonPathNumberValue("@.amount").isEqualTo(0.05);
+        assertThat(json.write(new CashCard(1L, 50, "sarah1"))).extractingJsonPathNumberValue("@.amount").isEqualTo(0.5);
+        assertThat(json.write(new CashCard(1L, -1999, "sarah1"))).extractingJsonPathNumberValue("@.amount").isEqualTo(-19.99);
+        assertThat(json.write(new CashCard(1L, 0, "sarah1"))).extractingJsonPathNumberValue("@.amount").isEqualTo(0.0);
+    }
+
+    @Test
+    void extremeAmountsAreWrittenExactly() throws IOException {
+        assertThat(json.write(new CashCard(1L, Long.MAX_VALUE, "sarah1")).getJson()).contains("\"amount\":92233720368547758.07");
+        assertThat(json.write(new CashCard(1L, Long.MIN_VALUE, "sarah1")).getJson()).contains("\"amount\":-92233720368547758.08");
+    }
+
+    @Test
+    void amountIsReadExactly() throws IOException {
+        assertThat(json.parseObject("{\"amount\": 0.1}").amount() + json.parseObject("{\"amount\": 0.2}").amount())
+                .isEqualTo(json.parseObject("{\"amount\": 0.3}").amount());
+        assertThat(json.parseObject("{\"amount\": 42}").amount()).isEqualTo(4200L);
+    }
+
+    @Test
+    void missingOrNullAmountIsRejected() {
+        assertThatThrownBy(() -> json.parseObject("{\"owner\": \"sarah1\"}")).isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> json.parseObject("{\"amount\": null, \"owner\": \"sarah1\"}")).isInstanceOf(MismatchedInputException.class);
+    }
+
+    @Test
+    void amountWithMoreThanTwoDecimalsIsRejected() {
+        assertThatThrownBy(() -> json.parseObject("{\"amount\": 1.005}")).isInstanceOf(InvalidFormatException.class);
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.demo.controllers;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import net.minidev.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Keyset paginering: door alle pagina's heen lopen met de "next" token moet precies alle cash cards
+in de gevraagde volgorde opleveren, en de laatste pagina heeft geen "next".
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CashCardKeysetPagingTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldWalkAllPagesSortedByAmountDescending() {
+        List<Object> amounts = new ArrayList<>();
+        String url = "/cashcards/paged?cursor=&size=1&sort=amount,desc";
+        while (url != null) {
+            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+            DocumentContext documentContext = JsonPath.parse(response.getBody());
+            JSONArray content = documentContext.read("$.content[*]");
+            assertThat(content.size()).isEqualTo(1);
+            amounts.add(documentContext.read("$.content[0].amount"));
+
+            String next = documentContext.read("$.next");
+            url = next == null ? null : "/cashcards/paged?cursor=" + next + "&size=1";
+        }
+        assertThat(amounts).containsExactly(200.0, 150.0, 123.45, 1.0);
+    }
+
+    @Test
+    void shouldReturnTheLastPageWithoutNextCursor() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/paged?cursor=&size=10&sort=id,asc", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        JSONArray ids = documentContext.read("$.content[*].id");
+        assertThat(ids).containsExactly(99, 100, 101, 102);
+        String next = documentContext.read("$.next");
+        assertThat(next).isNull();
+    }
+
+    @Test
+    void shouldRejectAnInvalidCursorOrSort() {
+        assertThat(restTemplate.getForEntity("/cashcards/paged?cursor=bm9wZQ&size=1", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity("/cashcards/paged?cursor=&size=1&sort=owner,asc", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        // "amount:asc::99", een amount cursor zonder bedrag
+        assertThat(restTemplate.getForEntity("/cashcards/paged?cursor=YW1vdW50OmFzYzo6OTk&size=1", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.repositories.CashCardLedgerRepository;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Ledger en saldo-op-tijdstip (GET /cashcards/{id}/balance?at=...), snapshots en compaction.
+Startsituatie uit data.sql: kaart 99 heeft 123.45 en een openingssnapshot.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardLedgerTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    CashCardLedgerRepository cashCardLedgerRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldReturnTheBalanceAtEachPointInTime() throws InterruptedException {
+        ResponseEntity<Void> createResponse = restTemplate.postForEntity("/cashcards", new CashCard(null, 25000, "sarah1"), Void.class);
+        URI location = createResponse.getHeaders().getLocation();
+        Instant created = tick();
+        post(location + "/transactions", "-50.00");
+        Instant debited = tick();
+        restTemplate.exchange(location, HttpMethod.PUT, new HttpEntity<>(new CashCard(null, 1999, null)), Void.class);
+        Instant updated = tick();
+        restTemplate.delete(location);
+        Instant deleted = tick();
+
+        assertThat(balance(location + "/balance?at=" + created)).isEqualTo(250.00);
+        assertThat(balance(location + "/balance?at=" + debited)).isEqualTo(200.00);
+        assertThat(balance(location + "/balance?at=" + updated)).isEqualTo(19.99);
+        assertThat(restTemplate.getForEntity(location + "/balance?at=" + deleted, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity(location + "/balance?at=2000-01-01T00:00:00Z", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldStartFromTheOpeningSnapshot() throws InterruptedException {
+        Instant before = tick();
+        post("/cashcards/99/transactions", "1.55");
+        assertThat(balance("/cashcards/99/balance?at=" + before)).isEqualTo(123.45);
+        assertThat(balance("/cashcards/99/balance")).isEqualTo(125.00);
+    }
+
+    @Test
+    void shouldGiveTheSameBalancesAfterSnapshotting() throws InterruptedException {
+        Instant[] moments = new Instant[5];
+        for (int i = 0; i < moments.length; i++) {
+            post("/cashcards/99/transactions", "1.00");
+            moments[i] = tick();
+        }
+        assertThat(snapshot(3)).isEqualTo(1);
+        // de entries zitten nu in de snapshot, dus pas na 3 nieuwe entries weer een snapshot
+        assertThat(snapshot(3)).isZero();
+        for (int i = 0; i < moments.length; i++) {
+            assertThat(balance("/cashcards/99/balance?at=" + moments[i])).isEqualTo(124.45 + i);
+        }
+    }
+
+    @Test
+    void shouldFoldOldEntriesIntoASnapshot() throws InterruptedException {
+        Instant start = tick();
+        post("/cashcards/99/transactions", "1.00");
+        post("/cashcards/99/transactions", "2.00");
+        Instant cutoff = tick();
+        post("/cashcards/99/transactions", "3.00");
+        Instant end = tick();
+
+        assertThat(compact(cutoff)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cash_card_ledger WHERE cash_card_id = 99", Long.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cash_card_snapshot WHERE cash_card_id = 99", Long.class)).isEqualTo(1);
+
+        assertThat(balance("/cashcards/99/balance?at=" + cutoff)).isEqualTo(126.45);
+        assertThat(balance("/cashcards/99/balance?at=" + end)).isEqualTo(129.45);
+        // ouder dan de retentie
+        assertThat(restTemplate.getForEntity("/cashcards/99/balance?at=" + start, String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldRemoveCashCardsThatWereDeletedBeforeTheCutoff() throws InterruptedException {
+        restTemplate.delete("/cashcards/102");
+        Instant cutoff = tick();
+        compact(cutoff);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cash_card_snapshot WHERE cash_card_id = 102", Long.class)).isZero();
+    }
+
+    private int snapshot(int minEntries) {
+        return transactionTemplate.execute(status -> cashCardLedgerRepository.snapshot(minEntries));
+    }
+
+    private int compact(Instant cutoff) {
+        return transactionTemplate.execute(status -> cashCardLedgerRepository.compact(cutoff));
+    }
+
+    private static Instant tick() throws InterruptedException {
+        Thread.sleep(5);
+        Instant now = Instant.now();
+        Thread.sleep(5);
+        return now;
+    }
+
+    private double balance(String url) {
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        return documentContext.read("$.balance", Double.class);
+    }
+
+    private void post(String url, String amount) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.postForEntity(url, new HttpEntity<>("{\"amount\": " + amount + "}", headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
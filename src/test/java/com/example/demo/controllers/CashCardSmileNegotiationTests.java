@@ -0,0 +1,125 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardBatchResult;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Content negotiation: met Accept of Content-Type application/x-jackson-smile praten de /cashcards endpoints Smile,
+zonder die headers blijft alles JSON. JSON en Smile hebben elk een eigen ETag.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CashCardSmileNegotiationTests {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Test
+    void shouldReturnACashCardAsSmile() throws IOException {
+        ResponseEntity<byte[]> response = get("/cashcards/99");
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(APPLICATION_SMILE);
+        assertThat(smile().readValue(response.getBody(), CashCard.class)).isEqualTo(new CashCard(99L, 12345, "sarah1"));
+    }
+
+    @Test
+    void shouldReturnAllCashCardsAsSmile() throws IOException {
+        ResponseEntity<byte[]> response = get("/cashcards");
+        assertThat(response.getHeaders().getContentType()).isEqualTo(APPLICATION_SMILE);
+        CashCard[] cashCards = smile().readValue(response.getBody(), CashCard[].class);
+        assertThat(cashCards).hasSize(4);
+
+        ResponseEntity<byte[]> json = restTemplate.getForEntity("/cashcards", byte[].class);
+        assertThat(json.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(response.getBody().length).isLessThan(json.getBody().length);
+    }
+
+    @Test
+    void shouldStreamAllCashCardsAsSmile() throws IOException {
+        ResponseEntity<byte[]> response = restTemplate.getForEntity("/cashcards?stream=smile", byte[].class);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(APPLICATION_SMILE);
+        try (MappingIterator<CashCard> cashCards = smile().readerFor(CashCard.class).readValues(response.getBody())) {
+            assertThat(cashCards.readAll()).extracting(CashCard::id).containsExactly(99L, 100L, 101L, 102L);
+        }
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldCreateACashCardFromSmile() throws IOException {
+        ResponseEntity<Void> createResponse = restTemplate.exchange("/cashcards", HttpMethod.POST,
+                smileBody(new CashCard(null, 25000, "sarah1")), Void.class);
+        assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        URI location = createResponse.getHeaders().getLocation();
+        CashCard cashCard = smile().readValue(get(location.getPath()).getBody(), CashCard.class);
+        assertThat(cashCard.amount()).isEqualTo(25000L);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldCreateCashCardsInBatchFromSmile() throws IOException {
+        CashCard[] cashCards = {new CashCard(null, 1000, "sarah1"), new CashCard(null, 2000, "kumar2")};
+        ResponseEntity<CashCardBatchResult[]> response = restTemplate.exchange("/cashcards/batch", HttpMethod.POST,
+                smileBody(cashCards), CashCardBatchResult[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(CashCardBatchResult::status).containsExactly(201, 201);
+    }
+
+    @Test
+    void shouldNotRevalidateJsonWithTheSmileETag() {
+        ResponseEntity<byte[]> smileResponse = get("/cashcards/99");
+        String smileETag = smileResponse.getHeaders().getETag();
+        String jsonETag = restTemplate.getForEntity("/cashcards/99", String.class).getHeaders().getETag();
+        assertThat(smileETag).isNotEqualTo(jsonETag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.setIfNoneMatch(smileETag);
+        ResponseEntity<String> json = restTemplate.exchange("/cashcards/99", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(json.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        headers.setAccept(List.of(APPLICATION_SMILE));
+        ResponseEntity<byte[]> smile = restTemplate.exchange("/cashcards/99", HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertThat(smile.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    private ObjectMapper smile() {
+        return smileConverter.getObjectMapper();
+    }
+
+    private ResponseEntity<byte[]> get(String url) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(APPLICATION_SMILE));
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+    }
+
+    private HttpEntity<byte[]> smileBody(Object value) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(APPLICATION_SMILE);
+        return new HttpEntity<>(smile().writeValueAsBytes(value), headers);
+    }
+}
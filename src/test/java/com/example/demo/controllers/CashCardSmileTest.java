@@ -0,0 +1,83 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.SmileConfiguration;
+import com.example.demo.model.CashCard;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+test of omzetten smile <=> object goed gaat, net als CashCardJsonTest maar dan binair
+ */
+@JsonTest
+@Import(SmileConfiguration.class)
+public class CashCardSmileTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    private ObjectMapper smileMapper;
+    private CashCard[] cashCards;
+
+    @BeforeEach
+    void setUp() {
+        smileMapper = smileConverter.getObjectMapper();
+        cashCards = Arrays.array(
+                new CashCard(99L, 12345, "sarah1"),
+                new CashCard(100L, 100, "sarah1"),
+                new CashCard(101L, 15000, "sarah1"));
+    }
+
+    @Test
+    void cashCardRoundTripTest() throws IOException {
+        byte[] smile = smileMapper.writeValueAsBytes(cashCards[0]);
+        // Smile header ":)\n"
+        assertThat(smile).startsWith(':', ')', '\n');
+        assertThat(smileMapper.readValue(smile, CashCard.class)).isEqualTo(new CashCard(99L, 12345, "sarah1"));
+    }
+
+    @Test
+    void cashCardListRoundTripTest() throws IOException {
+        byte[] smile = smileMapper.writeValueAsBytes(cashCards);
+        assertThat(smileMapper.readValue(smile, CashCard[].class)).isEqualTo(cashCards);
+    }
+
+    // een double is boven 2^53 niet meer exact, dus Smile schrijft het bedrag als BigDecimal
+    @Test
+    void extremeAmountsRoundTripExactlyTest() throws IOException {
+        for (long amount : new long[]{(1L << 53) + 1, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            CashCard cashCard = new CashCard(1L, amount, "sarah1");
+            assertThat(smileMapper.readValue(smileMapper.writeValueAsBytes(cashCard), CashCard.class)).isEqualTo(cashCard);
+        }
+    }
+
+    /*
+    Smile levert dezelfde boom op als JSON, dus er gaan geen velden verloren of bij. De bedragen worden aan beide kanten
+    als BigDecimal gelezen: in Smile zijn het BigDecimals, in JSON decimale getallen.
+     */
+    @Test
+    void cashCardSmileMatchesJsonTest() throws IOException {
+        byte[] smile = smileMapper.writeValueAsBytes(cashCards);
+        assertThat(smileMapper.reader(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readTree(smile))
+                .isEqualTo(objectMapper.reader(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                        .readTree(objectMapper.writeValueAsBytes(cashCards)));
+    }
+
+    @Test
+    void cashCardListIsSmallerThanJsonTest() throws IOException {
+        assertThat(smileMapper.writeValueAsBytes(cashCards).length)
+                .isLessThan(objectMapper.writeValueAsBytes(cashCards).length);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.controllers;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import net.minidev.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Test van de streaming export: /cashcards?stream=ndjson en /cashcards?stream=json
+moeten dezelfde cash cards opleveren als /cashcards, maar dan rij voor rij geschreven.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CashCardStreamingTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldStreamAllCashCardsAsNdjson() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards?stream=ndjson", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/x-ndjson"));
+
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(4);
+
+        DocumentContext first = JsonPath.parse(lines[0]);
+        Number id = first.read("$.id");
+        assertThat(id).isEqualTo(99);
+        Double amount = first.read("$.amount");
+        assertThat(amount).isEqualTo(123.45);
+    }
+
+    @Test
+    void shouldStreamAllCashCardsAsJsonArray() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards?stream=json", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        int cashCardCount = documentContext.read("$.length()");
+        assertThat(cashCardCount).isEqualTo(4);
+
+        JSONArray ids = documentContext.read("$..id");
+        assertThat(ids).containsExactly(99, 100, 101, 102);
+    }
+
+    @Test
+    void shouldRejectAnUnknownStreamFormat() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards?stream=xml", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
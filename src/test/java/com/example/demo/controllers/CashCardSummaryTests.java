@@ -0,0 +1,109 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+/cashcards/owners/{owner}/summary moet na elke schrijfactie (enkel of batch) hetzelfde geven als een GROUP BY op cash_card.
+Startsituatie uit data.sql: sarah1 heeft 123.45, 1.00 en 150.00, kumar2 heeft 200.00.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "cashcard.batch.chunk-size=2")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardSummaryTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldReturnTheSeededSummary() {
+        DocumentContext summary = summary("sarah1");
+        assertThat(summary.read("$.owner", String.class)).isEqualTo("sarah1");
+        assertThat(summary.read("$.count", Long.class)).isEqualTo(3);
+        assertThat(summary.read("$.sum", Double.class)).isEqualTo(274.45);
+        assertThat(summary.read("$.min", Double.class)).isEqualTo(1.00);
+        assertThat(summary.read("$.max", Double.class)).isEqualTo(150.00);
+    }
+
+    @Test
+    void shouldNotReturnASummaryForAnOwnerWithoutCashCards() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/owners/nobody/summary", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldFollowCreateUpdateAndDelete() {
+        restTemplate.postForEntity("/cashcards", new CashCard(null, 50000, "sarah1"), Void.class);
+        DocumentContext summary = summary("sarah1");
+        assertThat(summary.read("$.count", Long.class)).isEqualTo(4);
+        assertThat(summary.read("$.sum", Double.class)).isEqualTo(774.45);
+        assertThat(summary.read("$.max", Double.class)).isEqualTo(500.00);
+
+        // het minimum wordt verhoogd, dus moet opnieuw uit cash_card komen
+        restTemplate.exchange("/cashcards/100", HttpMethod.PUT, new HttpEntity<>(new CashCard(null, 5000, null)), Void.class);
+        summary = summary("sarah1");
+        assertThat(summary.read("$.sum", Double.class)).isEqualTo(823.45);
+        assertThat(summary.read("$.min", Double.class)).isEqualTo(50.00);
+
+        restTemplate.exchange("/cashcards/102", HttpMethod.DELETE, null, Void.class);
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/owners/kumar2/summary", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldFollowBatchWrites() {
+        String created = """
+                [
+                    {"amount": 0.50, "owner": "sarah1"},
+                    {"amount": 10.00, "owner": "kumar2"},
+                    {"amount": 20.00, "owner": "kumar2"}
+                ]
+                """;
+        batch(HttpMethod.POST, created);
+        assertThat(summary("sarah1").read("$.min", Double.class)).isEqualTo(0.50);
+        DocumentContext kumar = summary("kumar2");
+        assertThat(kumar.read("$.count", Long.class)).isEqualTo(3);
+        assertThat(kumar.read("$.sum", Double.class)).isEqualTo(230.00);
+        assertThat(kumar.read("$.min", Double.class)).isEqualTo(10.00);
+
+        batch(HttpMethod.PUT, """
+                [{"id": 101, "amount": 1000.00, "owner": "sarah1"}, {"id": 102, "amount": 5.00, "owner": "kumar2"}]
+                """);
+        assertThat(summary("sarah1").read("$.max", Double.class)).isEqualTo(1000.00);
+        kumar = summary("kumar2");
+        assertThat(kumar.read("$.max", Double.class)).isEqualTo(20.00);
+        assertThat(kumar.read("$.min", Double.class)).isEqualTo(5.00);
+
+        batch(HttpMethod.DELETE, "[99, 100, 101]");
+        DocumentContext sarah = summary("sarah1");
+        assertThat(sarah.read("$.count", Long.class)).isEqualTo(1);
+        assertThat(sarah.read("$.sum", Double.class)).isEqualTo(0.50);
+        assertThat(sarah.read("$.max", Double.class)).isEqualTo(0.50);
+    }
+
+    private DocumentContext summary(String owner) {
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/owners/" + owner + "/summary", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return JsonPath.parse(response.getBody());
+    }
+
+    private void batch(HttpMethod method, String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.exchange("/cashcards/batch", method, new HttpEntity<>(body, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
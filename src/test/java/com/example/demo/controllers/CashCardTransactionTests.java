@@ -0,0 +1,168 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCardTransaction;
+import com.example.demo.services.CashCardTransactionService;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/*
+POST /cashcards/{id}/transactions: bij- en afboeken, idempotency en gelijktijdige boekingen op één kaart.
+Startsituatie uit data.sql: kaart 99 heeft 123.45, kaart 100 heeft 1.00.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardTransactionTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    CashCardTransactionService cashCardTransactionService;
+
+    @Test
+    void shouldCreditAndDebitACashCard() {
+        ResponseEntity<String> response = post(99, "10.00", null);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        assertThat(documentContext.read("$.cashCardId", Long.class)).isEqualTo(99L);
+        assertThat(documentContext.read("$.amount", Double.class)).isEqualTo(10.00);
+        assertThat(documentContext.read("$.balance", Double.class)).isEqualTo(133.45);
+
+        response = post(99, "-33.45", null);
+        assertThat(JsonPath.parse(response.getBody()).read("$.balance", Double.class)).isEqualTo(100.00);
+
+        // de cache van findById is geëvict
+        response = restTemplate.getForEntity("/cashcards/99", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.amount", Double.class)).isEqualTo(100.00);
+        response = restTemplate.getForEntity("/cashcards/owners/sarah1/summary", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.sum", Double.class)).isEqualTo(251.00);
+    }
+
+    @Test
+    void shouldNotBookOnAnUnknownCashCard() {
+        assertThat(post(1000, "10.00", null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldBookARetriedIdempotencyKeyOnlyOnce() {
+        ResponseEntity<String> first = post(99, "10.00", "retry-1");
+        ResponseEntity<String> retry = post(99, "10.00", "retry-1");
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+        assertThat(JsonPath.parse(retry.getBody()).read("$.balance", Double.class)).isEqualTo(133.45);
+
+        assertThat(post(99, "20.00", "retry-1").getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        // dezelfde sleutel op een andere kaart is een andere boeking
+        assertThat(post(100, "20.00", "retry-1").getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/99", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.amount", Double.class)).isEqualTo(133.45);
+    }
+
+    @Test
+    void shouldRejectADebitBeyondTheBalance() {
+        assertThat(post(100, "-1.01", "overdraft-1").getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/100", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.amount", Double.class)).isEqualTo(1.00);
+
+        // de geweigerde sleutel is niet opgeslagen, dus na een bijboeking lukt dezelfde afboeking wel
+        assertThat(post(100, "5.00", null).getStatusCode()).isEqualTo(HttpStatus.OK);
+        response = post(100, "-1.01", "overdraft-1");
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(JsonPath.parse(response.getBody()).read("$.balance", Double.class)).isEqualTo(4.99);
+    }
+
+    @Test
+    void shouldRejectOnlyTheBookingThatOverflowsTheBalance() {
+        // Long.MAX_VALUE centen; met de 123.45 van kaart 99 past het saldo niet meer in een long
+        assertThat(post(99, "92233720368547758.07", "overflow-1").getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/99", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.amount", Double.class)).isEqualTo(123.45);
+        assertThatExceptionOfType(CashCardTransactionService.BalanceOverflowException.class)
+                .isThrownBy(() -> cashCardTransactionService.apply(99L, Long.MAX_VALUE, null));
+
+        assertThat(post(99, "10.00", null).getStatusCode()).isEqualTo(HttpStatus.OK);
+        response = restTemplate.getForEntity("/cashcards/99", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.amount", Double.class)).isEqualTo(133.45);
+    }
+
+    @Test
+    void shouldRejectAnInvalidAmount() {
+        assertThat(post(99, "0.001", null).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(post(99, "null", null).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    /*
+    Veel threads boeken tegelijk 1 cent op dezelfde kaart, een deel met Idempotency-Key en elke sleutel twee keer.
+    Elke unieke boeking moet precies één keer meetellen en een eigen saldo terugkrijgen.
+     */
+    @Test
+    void shouldKeepTheBalanceCorrectUnderContention() throws Exception {
+        int threads = 16;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Long> balances = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    String idempotencyKey = i % 2 == 0 ? "key-" + thread + "-" + i : null;
+                    CashCardTransaction transaction = cashCardTransactionService.apply(100L, 1, idempotencyKey).orElseThrow();
+                    balances.add(transaction.balance());
+                    if (idempotencyKey != null) {
+                        assertThat(cashCardTransactionService.apply(100L, 1, idempotencyKey)).contains(transaction);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long expected = 100 + threads * perThread;
+        assertThat(balances).hasSize(threads * perThread);
+        assertThat(balances.stream().mapToLong(Long::longValue).max()).hasValue(expected);
+        ResponseEntity<String> response = restTemplate.getForEntity("/cashcards/100", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.amount", Double.class)).isEqualTo(expected / 100.0);
+        response = restTemplate.getForEntity("/cashcards/owners/sarah1/summary", String.class);
+        assertThat(JsonPath.parse(response.getBody()).read("$.sum", Double.class)).isEqualTo((27445 - 100 + expected) / 100.0);
+    }
+
+    private ResponseEntity<String> post(long id, String amount, String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (idempotencyKey != null) {
+            headers.set(CashCardTransactionController.IDEMPOTENCY_KEY, idempotencyKey);
+        }
+        return restTemplate.postForEntity("/cashcards/" + id + "/transactions",
+                new HttpEntity<>("{\"amount\": " + amount + "}", headers), String.class);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.services.CashCardWriteBehindService;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+POST /cashcards met cashcard.write-behind.enabled=true. De automatische flush staat praktisch uit
+(flush-interval PT1H), zodat de test zelf bepaalt wanneer de kaarten naar de database gaan.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "cashcard.write-behind.enabled=true",
+        "cashcard.write-behind.directory=target/write-behind-tests/${random.uuid}",
+        "cashcard.write-behind.flush-interval=PT1H"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardWriteBehindTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    CashCardWriteBehindService cashCardWriteBehindService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldReadACashCardBeforeAndAfterItIsFlushed() {
+        ResponseEntity<Void> createResponse = restTemplate.postForEntity("/cashcards", new CashCard(null, 25000, "sarah1"), Void.class);
+        assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        URI location = createResponse.getHeaders().getLocation();
+        long id = Long.parseLong(location.getPath().substring(location.getPath().lastIndexOf('/') + 1));
+        assertThat(id).isGreaterThanOrEqualTo(1_000_000_000_000L);
+
+        assertThat(countInDatabase(id)).isZero();
+        assertThat(amount(location)).isEqualTo(250.00);
+
+        cashCardWriteBehindService.flush();
+        assertThat(countInDatabase(id)).isEqualTo(1);
+        assertThat(amount(location)).isEqualTo(250.00);
+        ResponseEntity<String> summary = restTemplate.getForEntity("/cashcards/owners/sarah1/summary", String.class);
+        assertThat(JsonPath.parse(summary.getBody()).read("$.count", Long.class)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldHandOutUniqueIds() {
+        for (int i = 0; i < 1500; i++) {
+            cashCardWriteBehindService.create(new CashCard(null, i, "kumar2"));
+        }
+        cashCardWriteBehindService.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM cash_card WHERE owner = 'kumar2'", Long.class)).isEqualTo(1501);
+    }
+
+    @Test
+    void shouldRejectAnUpdateOrDeleteOfAPendingCashCard() {
+        URI location = restTemplate.postForEntity("/cashcards", new CashCard(null, 25000, "sarah1"), Void.class).getHeaders().getLocation();
+
+        ResponseEntity<Void> putResponse = restTemplate.exchange(location, HttpMethod.PUT, new HttpEntity<>(new CashCard(null, 100, null)), Void.class);
+        assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(restTemplate.exchange(location, HttpMethod.DELETE, null, Void.class).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(amount(location)).isEqualTo(250.00);
+
+        cashCardWriteBehindService.flush();
+        putResponse = restTemplate.exchange(location, HttpMethod.PUT, new HttpEntity<>(new CashCard(null, 100, null)), Void.class);
+        assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(amount(location)).isEqualTo(1.00);
+    }
+
+    @Test
+    void shouldRejectACashCardWithoutOwner() {
+        ResponseEntity<Void> createResponse = restTemplate.postForEntity("/cashcards", new CashCard(null, 25000, null), Void.class);
+        assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private long countInDatabase(long id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cash_card WHERE id = ?", Long.class, id);
+    }
+
+    private double amount(URI location) {
+        ResponseEntity<String> response = restTemplate.getForEntity(location, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        DocumentContext documentContext = JsonPath.parse(response.getBody());
+        return documentContext.read("$.amount", Double.class);
+    }
+}
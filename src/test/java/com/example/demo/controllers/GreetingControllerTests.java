@@ -0,0 +1,59 @@
+package com.example.demo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+/greeting komt uit de greetings cache met een sterke ETag; If-None-Match met die ETag geeft 304 zonder body.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class GreetingControllerTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldRenderTheGreeting() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/greeting?name=sarah1", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.TEXT_HTML)).isTrue();
+        assertThat(response.getBody()).contains("Hello, sarah1!");
+        assertThat(response.getHeaders().getETag()).startsWith("\"").doesNotStartWith("W/");
+
+        assertThat(restTemplate.getForEntity("/greeting", String.class).getBody()).contains("Hello, World!");
+    }
+
+    @Test
+    void shouldEscapeTheName() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/greeting?name={name}", String.class, "<script>alert(1)</script>");
+        assertThat(response.getBody()).contains("Hello, &lt;script&gt;alert(1)&lt;/script&gt;!").doesNotContain("<script>");
+        // en uit de cache nog steeds escaped
+        assertThat(restTemplate.getForEntity("/greeting?name={name}", String.class, "<script>alert(1)</script>").getBody())
+                .isEqualTo(response.getBody());
+    }
+
+    @Test
+    void shouldReturnNotModifiedForAMatchingETag() {
+        String eTag = restTemplate.getForEntity("/greeting?name=sarah1", String.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        ResponseEntity<String> response = restTemplate.exchange("/greeting?name=sarah1", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+
+        // andere naam, andere pagina
+        response = restTemplate.exchange("/greeting?name=kumar2", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNotEqualTo(eTag);
+    }
+}
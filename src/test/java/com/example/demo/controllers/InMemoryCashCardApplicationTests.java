@@ -0,0 +1,75 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.StorageEnvironmentPostProcessor;
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardsChangedEvent;
+import com.example.demo.repositories.CashCardRepository;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/*
+Dezelfde tests als CashCardApplicationTests, maar met de in-memory CashCardRepository (zie InMemoryCashCardRepository).
+Zonder database is er geen data.sql, dus de kaarten daaruit worden hier via de repository aangemaakt.
+ */
+@TestPropertySource(properties = "cashcard.storage=memory")
+class InMemoryCashCardApplicationTests extends CashCardApplicationTests {
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Test
+    void shouldRunWithoutADatabase() {
+        assertThat(applicationContext.getBeanNamesForType(DataSource.class)).isEmpty();
+        assertThat(applicationContext.getBeanNamesForType(ConnectionFactory.class)).isEmpty();
+        assertThat(applicationContext.getBeanNamesForType(CashCardBatchController.class)).isEmpty();
+
+        DocumentContext summary = JsonPath.parse(restTemplate.getForObject("/cashcards/owners/sarah1/summary", String.class));
+        assertThat(summary.read("$.count", Long.class)).isEqualTo(3);
+        assertThat(summary.read("$.sum", Double.class)).isEqualTo(274.45);
+        assertThat(summary.read("$.min", Double.class)).isEqualTo(1.00);
+        assertThat(summary.read("$.max", Double.class)).isEqualTo(150.00);
+        assertThat(restTemplate.getForEntity("/cashcards/99", String.class).getHeaders().getETag()).isNotNull();
+    }
+
+    @Test
+    void shouldRefuseWriteBehind() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("cashcard.storage", "memory")
+                .withProperty("cashcard.write-behind.enabled", "true");
+        assertThatIllegalStateException().isThrownBy(() ->
+                new StorageEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication()));
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class SeedConfiguration {
+
+        @Bean
+        ApplicationRunner seedCashCards(CashCardRepository cashCardRepository, ApplicationEventPublisher eventPublisher) {
+            return args -> {
+                List<CashCard> cashCards = List.of(new CashCard(99L, 12345, "sarah1"), new CashCard(100L, 100, "sarah1"),
+                        new CashCard(101L, 15000, "sarah1"), new CashCard(102L, 20000, "kumar2"));
+                cashCardRepository.saveAll(cashCards);
+                eventPublisher.publishEvent(new CashCardsChangedEvent(
+                        cashCards.stream().map(cashCard -> new CashCardChange(null, cashCard)).toList()));
+            };
+        }
+    }
+}
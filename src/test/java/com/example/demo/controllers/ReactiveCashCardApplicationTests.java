@@ -0,0 +1,101 @@
+package com.example.demo.controllers;
+
+import com.example.demo.model.CashCard;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import net.minidev.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+De /reactive/cashcards routes: lezen via R2DBC, schrijven via CashCardService (zie ReactiveCashCardService).
+Een wijziging via de reactive kant moet dus meteen zichtbaar zijn in /cashcards en in de owner summary.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReactiveCashCardApplicationTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldReturnACashCardOrNotFound() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/reactive/cashcards/99", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Double amount = JsonPath.parse(response.getBody()).read("$.amount");
+        assertThat(amount).isEqualTo(123.45);
+
+        assertThat(restTemplate.getForEntity("/reactive/cashcards/1000", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldReturnASortedPageOfCashCards() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/reactive/cashcards/paged?page=0&size=2&sort=amount,desc", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        JSONArray amounts = JsonPath.parse(response.getBody()).read("$..amount");
+        assertThat(amounts).containsExactly(200.00, 150.00);
+    }
+
+    @Test
+    void shouldStreamAllCashCardsAsNdjson() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType("application/x-ndjson")));
+        ResponseEntity<String> response = restTemplate.exchange("/reactive/cashcards", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        List<Number> ids = response.getBody().lines().map(line -> JsonPath.<Number>read(line, "$.id")).toList();
+        assertThat(ids).containsExactlyInAnyOrder(99, 100, 101, 102);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldCreateACashCardThatTheBlockingApiSees() {
+        ResponseEntity<Void> createResponse = restTemplate.postForEntity("/reactive/cashcards", new CashCard(null, 25000, "sarah1"), Void.class);
+        assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        URI location = createResponse.getHeaders().getLocation();
+        DocumentContext documentContext = JsonPath.parse(restTemplate.getForObject(location, String.class));
+        Double amount = documentContext.read("$.amount");
+        assertThat(amount).isEqualTo(250.00);
+        Number id = documentContext.read("$.id");
+        assertThat(restTemplate.getForEntity("/cashcards/" + id, String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldUpdateTheCashCardAndTheSummaryInOneTransaction() {
+        ResponseEntity<Void> response = restTemplate.exchange("/reactive/cashcards/100", HttpMethod.PUT,
+                new HttpEntity<>(new CashCard(null, 5000, null)), Void.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        Double amount = JsonPath.parse(restTemplate.getForObject("/cashcards/100", String.class)).read("$.amount");
+        assertThat(amount).isEqualTo(50.00);
+        Double min = JsonPath.parse(restTemplate.getForObject("/cashcards/owners/sarah1/summary", String.class)).read("$.min");
+        assertThat(min).isEqualTo(50.00);
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldDeleteAnExistingCashCard() {
+        ResponseEntity<Void> response = restTemplate.exchange("/reactive/cashcards/99", HttpMethod.DELETE, null, Void.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        assertThat(restTemplate.getForEntity("/reactive/cashcards/99", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity("/cashcards/99", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+Na een paar requests moeten de endpoint timers, de repository timers (met histogram buckets), het aantal rijen
+en de payload groottes in /actuator/prometheus staan.
+In tests staat de Prometheus export standaard uit, vandaar @AutoConfigureObservability.
+ */
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CashCardMetricsTests {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void shouldExposeCashCardMetricsForPrometheus() {
+        restTemplate.getForEntity("/cashcards/99", String.class);
+        restTemplate.getForEntity("/cashcards", String.class);
+        restTemplate.getForEntity("/cashcards/paged?page=0&size=2", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        String scrape = response.getBody();
+        assertThat(scrape).contains("http_server_requests_seconds_bucket{");
+        assertThat(scrape).containsPattern("http_server_requests_seconds_count\\{.*uri=\"/cashcards/\\{requestedId}\"");
+        assertThat(scrape).containsPattern("spring_data_repository_invocations_seconds_bucket\\{.*method=\"findAll\"");
+        assertThat(scrape).containsPattern("spring_data_repository_invocations_seconds_count\\{.*method=\"findById\"");
+        assertThat(scrape).contains("cashcard_rows_returned_rows_sum{endpoint=\"findAll\",} 4.0");
+        assertThat(scrape).containsPattern("cashcard_rows_returned_rows_sum\\{endpoint=\"paged\",} 2.0");
+        assertThat(scrape).containsPattern("cashcard_payload_bytes_count\\{direction=\"out\",.*uri=\"/cashcards\",}");
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.CashCard;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+De indexen van de store moeten dezelfde volgorde geven als de SQL queries van CashCardRepository: hier vergeleken
+met gewoon sorteren, na willekeurige inserts, updates en deletes over meerdere stripes.
+ */
+class InMemoryCashCardStoreTests {
+
+    private static final Comparator<CashCard> BY_AMOUNT = Comparator.comparingLong(CashCard::amount).thenComparing(CashCard::id);
+
+    @Test
+    void shouldPageInIndexOrderAfterRandomChanges() {
+        InMemoryCashCardStore store = new InMemoryCashCardStore(4);
+        List<CashCard> expected = fill(store);
+        expected.sort(BY_AMOUNT);
+
+        assertThat(store.count()).isEqualTo(expected.size());
+        assertThat(store.page(true, false, 10, 25)).containsExactlyElementsOf(expected.subList(10, 35));
+        assertThat(store.page(true, true, 0, 5)).containsExactlyElementsOf(reversed(expected).subList(0, 5));
+
+        CashCard last = expected.get(49);
+        assertThat(store.pageAfter(true, false, last.amount(), last.id(), 20)).containsExactlyElementsOf(expected.subList(50, 70));
+        assertThat(store.pageAfter(true, true, last.amount(), last.id(), 20))
+                .containsExactlyElementsOf(reversed(expected.subList(29, 49)));
+
+        List<CashCard> byId = new ArrayList<>(expected);
+        byId.sort(Comparator.comparing(CashCard::id));
+        assertThat(store.all()).containsExactlyElementsOf(byId);
+        assertThat(store.pageAfter(false, false, 0, byId.get(9).id(), 5)).containsExactlyElementsOf(byId.subList(10, 15));
+    }
+
+    @Test
+    void shouldPageOneOwnerWithoutTheOthers() {
+        InMemoryCashCardStore store = new InMemoryCashCardStore(4);
+        List<CashCard> sarah = fill(store).stream()
+                .filter(cashCard -> cashCard.owner().equals("sarah1"))
+                .sorted(BY_AMOUNT)
+                .toList();
+
+        assertThat(store.countByOwner("sarah1")).isEqualTo(sarah.size());
+        assertThat(store.pageByOwner("sarah1", true, false, 0, 1000)).containsExactlyElementsOf(sarah);
+        assertThat(store.pageByOwner("sarah1", false, true, 0, 3))
+                .containsExactlyElementsOf(sarah.stream().sorted(Comparator.comparing(CashCard::id).reversed()).limit(3).toList());
+        assertThat(store.pageByOwner("nobody", true, false, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRestoreTheSameCardsFromASnapshot(@TempDir Path directory) throws Exception {
+        InMemoryCashCardStore store = new InMemoryCashCardStore(4);
+        fill(store);
+        Path snapshot = directory.resolve("cashcards.snapshot");
+        store.writeSnapshot(snapshot);
+
+        InMemoryCashCardStore restored = new InMemoryCashCardStore(8);
+        restored.readSnapshot(snapshot);
+        assertThat(restored.all()).containsExactlyElementsOf(store.all());
+        assertThat(restored.nextId()).isEqualTo(store.nextId());
+    }
+
+    private static List<CashCard> reversed(List<CashCard> cashCards) {
+        List<CashCard> reversed = new ArrayList<>(cashCards);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    // 1000 inserts over drie owners, daarna een deel bijgewerkt en een deel verwijderd
+    private static List<CashCard> fill(InMemoryCashCardStore store) {
+        Random random = new Random(42);
+        String[] owners = {"sarah1", "kumar2", "esuez5"};
+        List<CashCard> cashCards = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            CashCard cashCard = new CashCard(store.nextId(), random.nextInt(500), owners[random.nextInt(owners.length)]);
+            store.put(cashCard);
+            cashCards.add(cashCard);
+        }
+        for (int i = 0; i < 300; i++) {
+            int index = random.nextInt(cashCards.size());
+            CashCard cashCard = cashCards.get(index);
+            if (random.nextBoolean()) {
+                CashCard updated = new CashCard(cashCard.id(), random.nextInt(500), cashCard.owner());
+                assertThat(store.put(updated)).isEqualTo(cashCard);
+                cashCards.set(index, updated);
+            } else {
+                assertThat(store.remove(cashCard.id())).isEqualTo(cashCard);
+                cashCards.remove(index);
+            }
+        }
+        return cashCards;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import com.example.demo.model.CashCardChange;
+import com.example.demo.model.CashCardsChangedEvent;
+import com.example.demo.repositories.CashCardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/*
+Een burst van gelijktijdige identieke lookups moet precies één aanroep op CashCardRepository opleveren.
+De repository blijft hangen tot alle threads binnen zijn, zodat ze zeker tegelijk in de flight zitten.
+ */
+class CashCardReadServiceTests {
+
+    private static final int THREADS = 32;
+
+    private final CashCardRepository cashCardRepository = mock(CashCardRepository.class);
+    private final CashCardReadService cashCardReadService = new CashCardReadService(cashCardRepository, true);
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldShareOneFindByIdPerBurst() throws Exception {
+        when(cashCardRepository.findById(99L)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(new CashCard(99L, 12345, "sarah1"));
+        });
+
+        List<Optional<CashCard>> results = burst(() -> cashCardReadService.findById(99L));
+
+        verify(cashCardRepository, times(1)).findById(99L);
+        assertThat(results).hasSize(THREADS).allSatisfy(result -> assertThat(result).isSameAs(results.get(0)));
+
+        // de burst is voorbij, de volgende lookup gaat weer naar de repository
+        cashCardReadService.findById(99L);
+        verify(cashCardRepository, times(2)).findById(99L);
+    }
+
+    @Test
+    void shouldShareOnePagePerBurstAndKeepDifferentPagesApart() throws Exception {
+        PageRequest first = PageRequest.of(0, 2, Sort.by("amount"));
+        PageRequest second = PageRequest.of(1, 2, Sort.by("amount"));
+        when(cashCardRepository.findAll(any(PageRequest.class))).thenAnswer(invocation -> {
+            release.await();
+            return new PageImpl<>(List.of(new CashCard(100L, 100, "sarah1")));
+        });
+
+        List<Page<CashCard>> results = burst(() -> cashCardReadService.findAll(PageRequest.of(0, 2, Sort.by("amount"))),
+                () -> cashCardReadService.findAll(second));
+
+        verify(cashCardRepository, times(1)).findAll(first);
+        verify(cashCardRepository, times(1)).findAll(second);
+        assertThat(results).hasSize(THREADS);
+    }
+
+    @Test
+    void shouldGiveEveryoneTheSameException() throws Exception {
+        when(cashCardRepository.findById(99L)).thenAnswer(invocation -> {
+            release.await();
+            throw new IllegalStateException("database down");
+        });
+
+        List<Future<Optional<CashCard>>> futures = start(() -> cashCardReadService.findById(99L));
+        for (Future<Optional<CashCard>> future : futures) {
+            assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS)).hasRootCauseMessage("database down");
+        }
+        verify(cashCardRepository, times(1)).findById(99L);
+    }
+
+    @Test
+    void shouldNotJoinAFlightFromBeforeAChange() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(cashCardRepository.findById(99L)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Optional.of(new CashCard(99L, 12345, "sarah1"));
+        });
+        Future<Optional<CashCard>> before = executor.submit(() -> cashCardReadService.findById(99L));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        cashCardReadService.onCashCardsChanged(new CashCardsChangedEvent(List.of(
+                new CashCardChange(new CashCard(99L, 12345, "sarah1"), new CashCard(99L, 1, "sarah1")))));
+        Future<Optional<CashCard>> after = executor.submit(() -> cashCardReadService.findById(99L));
+        release.countDown();
+        before.get(10, TimeUnit.SECONDS);
+        after.get(10, TimeUnit.SECONDS);
+
+        verify(cashCardRepository, times(2)).findById(99L);
+    }
+
+    @SafeVarargs
+    private <T> List<T> burst(Callable<T>... calls) throws Exception {
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : start(calls)) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    // THREADS aanroepen (om en om uit calls) die pas loslaten als ze allemaal gestart zijn
+    @SafeVarargs
+    private <T> List<Future<T>> start(Callable<T>... calls) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Callable<T> call = calls[i % calls.length];
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                return call.call();
+            }));
+        }
+        assertThat(ready.await(10, TimeUnit.SECONDS)).isTrue();
+        // de threads zijn gestart; even wachten tot ze ook in de flight zitten
+        Thread.sleep(200);
+        release.countDown();
+        return futures;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.services;
+
+import com.example.demo.model.CashCard;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+Crash recovery van het write-behind journal: kaarten die wel in het journal staan maar nog niet in de database
+worden bij het opstarten alsnog weggeschreven, precies één keer, en een half geschreven record wordt genegeerd.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardWriteBehindRecoveryTests {
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void shouldReplayTheJournalAfterACrash() throws IOException {
+        // "crash": wel in het journal, niet geflusht, en een afgebroken write aan het eind
+        try (CashCardJournal journal = new CashCardJournal(directory, 1 << 20)) {
+            assertThat(journal.open(0, 0)).isEmpty();
+            journal.append(new CashCard(5000L, 1234, "sarah1"));
+            journal.append(new CashCard(5001L, 99, "kumar2"));
+        }
+        Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 30, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        CashCardWriteBehindService restarted = start();
+        assertThat(jdbcTemplate.queryForList("SELECT amount FROM cash_card WHERE id IN (5000, 5001) ORDER BY id", Long.class))
+                .containsExactly(1234L, 99L);
+        assertThat(restarted.findPending(5000L)).isEmpty();
+        restarted.close();
+
+        // nog een keer opstarten schrijft niets dubbel
+        start().close();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cash_card WHERE id IN (5000, 5001)", Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldContinueInANewSegment() throws IOException {
+        CashCardWriteBehindService service = new CashCardWriteBehindService(jdbcTemplate, transactionTemplate, eventPublisher, cacheManager,
+                directory.toString(), 500, 64);
+        service.recover();
+        for (int i = 0; i < 5; i++) {
+            service.create(new CashCard(null, i, "sarah1"));
+        }
+        service.flush();
+        service.close();
+        try (var files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            // elke kaart is groter dan 64 bytes, dus elk segment bevat er één; alleen het laatste blijft over
+            assertThat(segments).hasSizeLessThanOrEqualTo(2);
+        }
+        start().close();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cash_card WHERE owner = 'sarah1'", Long.class)).isEqualTo(3 + 5);
+    }
+
+    @Test
+    void shouldStopTheJournalAfterAWriteFailure() throws IOException {
+        CashCardJournal journal = new CashCardJournal(directory, 1 << 20);
+        journal.open(0, 0);
+        journal.append(new CashCard(5000L, 1234, "sarah1"));
+        // een gesloten kanaal als schrijffout
+        journal.close();
+
+        assertThatThrownBy(() -> journal.append(new CashCard(5001L, 99, "kumar2"))).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> journal.append(new CashCard(5002L, 99, "kumar2"))).isInstanceOf(IOException.class);
+        assertThat(journal.peekSynced(10)).extracting(entry -> entry.cashCard().id()).containsExactly(5000L);
+
+        start().close();
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM cash_card WHERE id >= 5000", Long.class)).containsExactly(5000L);
+    }
+
+    private CashCardWriteBehindService start() throws IOException {
+        CashCardWriteBehindService service = new CashCardWriteBehindService(jdbcTemplate, transactionTemplate, eventPublisher, cacheManager,
+                directory.toString(), 500, 1 << 20);
+        service.recover();
+        return service;
+    }
+}
@@ -1,4 +1,10 @@
-INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (99, 123.45, 'sarah1');
-INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (100, 1.00, 'sarah1');
-INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (101, 150.00, 'sarah1');
-INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (102, 200.00, 'kumar2');
\ No newline at end of file
+INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (99, 12345, 'sarah1');
+INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (100, 100, 'sarah1');
+INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (101, 15000, 'sarah1');
+INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (102, 20000, 'kumar2');
+INSERT INTO CASH_CARD_OWNER_SUMMARY(OWNER, CARD_COUNT, TOTAL_AMOUNT, MIN_AMOUNT, MAX_AMOUNT)
+SELECT OWNER, COUNT(*), SUM(AMOUNT), MIN(AMOUNT), MAX(AMOUNT) FROM CASH_CARD GROUP BY OWNER;
+INSERT INTO CASH_CARD_SNAPSHOT(CASH_CARD_ID, LEDGER_ID, TAKEN_AT, BALANCE)
+SELECT ID, 0, CURRENT_TIMESTAMP, AMOUNT FROM CASH_CARD;
+INSERT INTO CASH_CARD_VERSION(CASH_CARD_ID, VERSION, MODIFIED_AT)
+SELECT ID, NEXT VALUE FOR CASH_CARD_VERSION_SEQ, CURRENT_TIMESTAMP FROM CASH_CARD;
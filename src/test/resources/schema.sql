@@ -1,6 +1,75 @@
 CREATE TABLE cash_card
 (
     ID       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    AMOUNT   NUMBER NOT NULL DEFAULT 0,
+    AMOUNT   BIGINT NOT NULL DEFAULT 0, -- in centen, zie Amount
     OWNER    VARCHAR(256) NOT NULL
-);
\ No newline at end of file
+);
+
+-- keyset paginering op amount: (amount, id) zodat de seek queries uit CashCardRepository.findPage via de index lopen
+CREATE INDEX cash_card_amount_id ON cash_card (AMOUNT, ID);
+
+-- herberekenen van min/max in JdbcCashCardSummaryRepository na een delete: alleen de kaarten van één owner, op amount
+CREATE INDEX cash_card_owner_amount ON cash_card (OWNER, AMOUNT);
+
+-- per owner bijgehouden aantal, som, minimum en maximum, zie JdbcCashCardSummaryRepository
+CREATE TABLE cash_card_owner_summary
+(
+    OWNER        VARCHAR(256) PRIMARY KEY,
+    CARD_COUNT   BIGINT NOT NULL,
+    TOTAL_AMOUNT BIGINT NOT NULL,
+    MIN_AMOUNT   BIGINT,
+    MAX_AMOUNT   BIGINT
+);
+
+-- resultaat van boekingen met een Idempotency-Key, zie CashCardTransactionRepository
+CREATE TABLE cash_card_transaction
+(
+    CASH_CARD_ID    BIGINT NOT NULL,
+    IDEMPOTENCY_KEY VARCHAR(256) NOT NULL,
+    AMOUNT          BIGINT NOT NULL,
+    BALANCE         BIGINT NOT NULL,
+    CREATED_AT      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (CASH_CARD_ID, IDEMPOTENCY_KEY)
+);
+
+-- append-only ledger van alle wijzigingen, met per kaart periodieke snapshots van het saldo, zie CashCardLedgerRepository
+CREATE TABLE cash_card_ledger
+(
+    ID           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    CASH_CARD_ID BIGINT NOT NULL,
+    AMOUNT       BIGINT NOT NULL,
+    DELETED      BOOLEAN NOT NULL DEFAULT FALSE,
+    CREATED_AT   TIMESTAMP NOT NULL
+);
+CREATE INDEX cash_card_ledger_card ON cash_card_ledger (CASH_CARD_ID, ID);
+
+CREATE TABLE cash_card_snapshot
+(
+    CASH_CARD_ID BIGINT NOT NULL,
+    LEDGER_ID    BIGINT NOT NULL,
+    TAKEN_AT     TIMESTAMP NOT NULL,
+    BALANCE      BIGINT,
+    PRIMARY KEY (CASH_CARD_ID, LEDGER_ID)
+);
+
+-- ids voor kaarten uit het write-behind journal, in blokken van 1000 (CashCardWriteBehindService.ID_BLOCK_SIZE),
+-- ver boven de identity van cash_card
+CREATE SEQUENCE cash_card_write_behind_seq START WITH 1000000000000 INCREMENT BY 1000;
+
+-- tot waar het write-behind journal in cash_card staat, zie CashCardWriteBehindService
+CREATE TABLE cash_card_journal_checkpoint
+(
+    JOURNAL    VARCHAR(1024) PRIMARY KEY,
+    GENERATION BIGINT NOT NULL,
+    POSITION   BIGINT NOT NULL
+);
+
+-- versie per kaart voor ETag/Last-Modified, verwijderde kaarten blijven staan met deleted = TRUE, zie JdbcCashCardVersionRepository
+CREATE SEQUENCE cash_card_version_seq;
+CREATE TABLE cash_card_version
+(
+    CASH_CARD_ID BIGINT PRIMARY KEY,
+    VERSION      BIGINT NOT NULL,
+    MODIFIED_AT  TIMESTAMP NOT NULL,
+    DELETED      BOOLEAN NOT NULL DEFAULT FALSE
+);